@@ -1,7 +1,31 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
 import components.map.Map;
 import components.map.Map1L;
-import components.queue.Queue;
-import components.queue.Queue1L;
 import components.simplereader.SimpleReader;
 import components.simplereader.SimpleReader1L;
 import components.simplewriter.SimpleWriter;
@@ -11,17 +35,18 @@ import components.simplewriter.SimpleWriter1L;
  * Glossary generates a set of HTML files from an input file containing terms
  * and definitions.
  * <p>
- * The input file consists of a term (a single word) on one line followed by one
- * or more lines of its definition (terminated by an empty line). The program
- * then produces an "index.html" file listing all terms in alphabetical order,
- * along with separate HTML pages for each term. Within each term's page, the
- * term appears at the top in red, bold, and italicized text. Additionally, any
- * term appearing within a definition is hyperlinked to its corresponding page.
+ * The input file consists of a term (a word or phrase) on one line followed by
+ * one or more lines of its definition (terminated by an empty line). The
+ * program then produces an "index.html" file listing all terms in alphabetical
+ * order, along with separate HTML pages for each term. Within each term's page,
+ * the term appears at the top in red, bold, and italicized text. Additionally,
+ * any term appearing within a definition is hyperlinked to its corresponding
+ * page.
  * </p>
  *
  * <p>
- * Only OSU CSE Components (SimpleReader, SimpleWriter, Map, Queue) and standard
- * Java libraries (e.g., Scanner) are used.
+ * Only OSU CSE Components (SimpleReader, SimpleWriter, Map) and standard Java
+ * libraries (e.g., Scanner, Arrays) are used.
  * </p>
  *
  * @author S. Park
@@ -30,24 +55,302 @@ public class Glossary {
 
     /**
      * A map that stores the glossary terms and their corresponding definitions.
-     * The key is the term (a single word), and the value is the definition
-     * text.
+     * The key is the term (one or more words, on a line of its own in the
+     * input), and the value is the definition text.
      */
     private Map<String, String> glossary;
 
     /**
-     * Constructs an empty Glossary.
+     * The input file, if the glossary was read by
+     * {@code readGlossaryStreaming}; {@code null} if the definitions are in
+     * {@code glossary}.
+     */
+    private Path source;
+
+    /**
+     * Where each definition is in {@code source}, by term: the byte offset of
+     * its first line and the number of bytes up to the end of its last line.
+     */
+    private Map<String, long[]> extents;
+
+    /**
+     * Links terms inside definitions; built over all the terms when the files
+     * are generated.
+     */
+    private TermLinker linker;
+
+    /**
+     * Order of the terms in the index.
+     */
+    private final Comparator<String> order;
+
+    /**
+     * Number of terms from which they are sorted in parallel.
+     */
+    private static final int PARALLEL_SORT_THRESHOLD = 1 << 14;
+
+    /**
+     * Number of threads rendering and writing term pages; more than the
+     * number of processors, since writing a page mostly waits on the file
+     * system.
+     */
+    private static final int PAGE_WRITER_THREADS = 2
+            * Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Buffer each page-writing thread renders its pages into, reused from one
+     * page to the next.
+     */
+    private static final ThreadLocal<StringBuilder> PAGE_BUFFER = ThreadLocal
+            .withInitial(StringBuilder::new);
+
+    /**
+     * Name of the manifest, in the output folder, recording a hash of every
+     * generated page for incremental regeneration.
+     */
+    private static final String MANIFEST_NAME = ".glossary-manifest";
+
+    /**
+     * First line of a manifest, identifying its format.
+     */
+    private static final String MANIFEST_HEADER = "glossary-manifest 1";
+
+    /**
+     * Lowercase hexadecimal formatter for manifest hashes.
+     */
+    private static final HexFormat HEX = HexFormat.of();
+
+    /**
+     * Size of the buffer the input file is read through by
+     * {@code readGlossaryStreaming}.
+     */
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Part of the input file each memory mapping starts at, for a glossary
+     * read by {@code readGlossaryStreaming}; each mapping extends past it by
+     * the longest definition, so that every definition lies within the
+     * mapping of the part it starts in.
+     */
+    private static final int MAP_WINDOW = 1 << 30;
+
+    /**
+     * Line breaks, as recognized by {@code SimpleReader}.
+     */
+    private static final Pattern LINE_BREAK = Pattern.compile("\\r\\n|\\r|\\n");
+
+    /**
+     * Finds the terms of a glossary file and the extent of each definition,
+     * scanning its bytes once and keeping only the current term line.
+     */
+    private static final class DefinitionIndexer {
+
+        /**
+         * Initial capacity of the line buffer.
+         */
+        private static final int INITIAL_LINE_CAPACITY = 128;
+
+        /**
+         * Largest byte that {@code String.trim} removes.
+         */
+        private static final int SPACE = ' ';
+
+        /**
+         * Extents of the definitions found so far, by term.
+         */
+        private final Map<String, long[]> extents = new Map1L<String, long[]>();
+
+        /**
+         * Bytes of the current line, kept only while looking for a term.
+         */
+        private byte[] line = new byte[INITIAL_LINE_CAPACITY];
+
+        /**
+         * Number of bytes in {@code line}.
+         */
+        private int lineLength = 0;
+
+        /**
+         * Whether the current line is blank so far.
+         */
+        private boolean lineBlank = true;
+
+        /**
+         * Offset of the start of the current line.
+         */
+        private long lineStart = 0;
+
+        /**
+         * Offset of the next byte.
+         */
+        private long position = 0;
+
+        /**
+         * Whether the last byte was a carriage return.
+         */
+        private boolean afterReturn = false;
+
+        /**
+         * The term whose definition is being read, or {@code null} if looking
+         * for a term.
+         */
+        private String term = null;
+
+        /**
+         * Offset of the first line of the current definition, or -1 if it has
+         * none yet.
+         */
+        private long definitionStart = -1;
+
+        /**
+         * Offset of the end of the last line of the current definition.
+         */
+        private long definitionEnd = 0;
+
+        /**
+         * Scans the next bytes of the file.
+         *
+         * @param bytes
+         *            the bytes
+         * @param count
+         *            the number of bytes to scan
+         */
+        void scan(byte[] bytes, int count) {
+            for (int k = 0; k < count; k++) {
+                byte b = bytes[k];
+                if (b == '\n' && this.afterReturn) {
+                    /*
+                     * Second half of a "\r\n" line break
+                     */
+                    this.lineStart = this.position + 1;
+                } else if (b == '\n' || b == '\r') {
+                    this.endLine();
+                    this.lineStart = this.position + 1;
+                } else {
+                    if ((b & 0xFF) > SPACE) {
+                        this.lineBlank = false;
+                    }
+                    if (this.term == null) {
+                        if (this.lineLength == this.line.length) {
+                            this.line = Arrays.copyOf(this.line,
+                                    2 * this.lineLength);
+                        }
+                        this.line[this.lineLength] = b;
+                        this.lineLength++;
+                    }
+                }
+                this.afterReturn = b == '\r';
+                this.position++;
+            }
+        }
+
+        /**
+         * Processes the line ending at {@code position}, just as
+         * {@code readGlossary} does.
+         */
+        private void endLine() {
+            if (this.term == null) {
+                if (!this.lineBlank) {
+                    this.term = new String(this.line, 0, this.lineLength,
+                            StandardCharsets.UTF_8).trim();
+                    this.definitionStart = -1;
+                }
+            } else if (this.lineBlank) {
+                this.endDefinition();
+            } else {
+                if (this.definitionStart < 0) {
+                    this.definitionStart = this.lineStart;
+                }
+                this.definitionEnd = this.position;
+            }
+            this.lineLength = 0;
+            this.lineBlank = true;
+        }
+
+        /**
+         * Records the extent of the current definition.
+         */
+        private void endDefinition() {
+            long[] extent = { 0, 0 };
+            if (this.definitionStart >= 0) {
+                extent[0] = this.definitionStart;
+                extent[1] = this.definitionEnd - this.definitionStart;
+            }
+            this.extents.add(this.term, extent);
+            this.term = null;
+        }
+
+        /**
+         * Completes the scan at the end of the file.
+         *
+         * @return the extents of the definitions, by term
+         */
+        Map<String, long[]> finish() {
+            if (this.position > this.lineStart) {
+                this.endLine();
+            }
+            if (this.term != null) {
+                this.endDefinition();
+            }
+            return this.extents;
+        }
+
+    }
+
+    /**
+     * Constructs an empty Glossary whose index lists the terms in natural
+     * {@code String} order.
      */
     public Glossary() {
+        this(Comparator.naturalOrder());
+    }
+
+    /**
+     * Constructs an empty Glossary whose index lists the terms in the given
+     * order, such as {@code caseInsensitiveOrder()} or
+     * {@code localeOrder(locale)}.
+     *
+     * @param order
+     *            the order of the terms in the index
+     */
+    public Glossary(Comparator<String> order) {
         this.glossary = new Map1L<String, String>();
+        this.order = order;
+    }
+
+    /**
+     * Returns an order that ignores case, breaking ties between terms that
+     * differ only in case by natural {@code String} order.
+     *
+     * @return the case-insensitive order
+     */
+    public static Comparator<String> caseInsensitiveOrder() {
+        return String.CASE_INSENSITIVE_ORDER
+                .thenComparing(Comparator.<String>naturalOrder());
+    }
+
+    /**
+     * Returns the collation order of the given locale, breaking ties between
+     * terms it considers equal by natural {@code String} order.
+     *
+     * @param locale
+     *            the locale
+     * @return the locale-aware order
+     */
+    public static Comparator<String> localeOrder(Locale locale) {
+        Collator collator = Collator.getInstance(locale);
+        Comparator<String> collation = collator::compare;
+        return collation.thenComparing(Comparator.<String>naturalOrder());
     }
 
     /**
      * Reads the glossary from an input file and populates the glossary map.
      * <p>
      * The file is read using OSU Components' SimpleReader. Each term is assumed
-     * to be a single word on a line, followed by one or more lines of
-     * definition text. A blank line terminates the definition for a term.
+     * to be on a line of its own (it may contain spaces), followed by one or
+     * more lines of definition text. A blank line terminates the definition
+     * for a term. A glossary read earlier by {@code readGlossaryStreaming} is
+     * discarded, so that the files are generated from the glossary map.
      * </p>
      *
      * @param inputFileName
@@ -93,6 +396,44 @@ public class Glossary {
             this.glossary.add(term, definition);
         }
         reader.close();
+        this.source = null;
+        this.extents = null;
+    }
+
+    /**
+     * Reads the glossary from an input file in two passes, so that the
+     * definitions are never all in memory at once.
+     * <p>
+     * This pass scans the file once and records only each term and where its
+     * definition is in the file; {@code generateFiles} then memory-maps the
+     * file and decodes each definition, as UTF-8, when its page is rendered.
+     * Memory use is therefore proportional to the number of terms rather than
+     * to the size of the file. The terms and definitions are the same as with
+     * {@code readGlossary}; the file must not change until the files are
+     * generated, no definition may be 1 GB or longer, and this must be the
+     * only glossary read into this {@code Glossary}.
+     * </p>
+     *
+     * @param inputFileName
+     *            the complete path of the input file
+     * @throws UncheckedIOException
+     *             if the file cannot be read
+     */
+    public void readGlossaryStreaming(String inputFileName) {
+        DefinitionIndexer indexer = new DefinitionIndexer();
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        try (InputStream input = Files
+                .newInputStream(Paths.get(inputFileName))) {
+            int count = input.read(buffer);
+            while (count >= 0) {
+                indexer.scan(buffer, count);
+                count = input.read(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.source = Paths.get(inputFileName);
+        this.extents = indexer.finish();
     }
 
     /**
@@ -103,43 +444,201 @@ public class Glossary {
      * displayed in red, bold, italicized text, and its definition is processed
      * so that any occurrence of another term is replaced with a hyperlink.
      * </p>
+     * <p>
+     * Every file is rewritten. The manifest described in
+     * {@code generateFiles(String, boolean)} is written to the output folder
+     * as well, so that a later incremental run into the same folder only
+     * rewrites what changed since this one.
+     * </p>
      *
      * @param outputFolder
      *            the path of the folder where the HTML files will be saved; the
      *            folder must exist.
      */
     public void generateFiles(String outputFolder) {
-        /*
-         * 1) Extract keys from the glossary map into a Queue.
-         */
-        Queue<String> keysQueue = new Queue1L<String>();
-        for (Map.Pair<String, String> pair : this.glossary) {
-            keysQueue.enqueue(pair.key());
+        this.generateFiles(outputFolder, false);
+    }
+
+    /**
+     * Generates the HTML files for the glossary, as {@code generateFiles},
+     * optionally only rewriting the files that changed since the last run.
+     * <p>
+     * Every run records, in a manifest file in the output folder, a hash of
+     * each term page and of the key set shown in the index. A term page's
+     * hash covers its rendered content, so it changes when the definition
+     * changes or when the set of terms linked from it does. In incremental
+     * mode, a page is written only if its hash differs from the manifest's
+     * (or the file is missing), the index only if the key set changed, and
+     * the pages of terms no longer in the glossary are deleted. Every
+     * definition is still linked, but unchanged files are left untouched.
+     * </p>
+     *
+     * @param outputFolder
+     *            the path of the folder where the HTML files will be saved; the
+     *            folder must exist.
+     * @param incremental
+     *            whether to rewrite only the files that changed since the
+     *            last run, according to its manifest
+     */
+    public void generateFiles(String outputFolder, boolean incremental) {
+        HashMap<String, String> previous = new HashMap<>();
+        if (incremental) {
+            previous = readManifest(outputFolder);
         }
         /*
-         * Convert the queue to an array.
+         * 1) Extract keys from the glossary map (or, for a streamed glossary,
+         * the extents map) into an array.
          */
-        String[] keysArray = new String[keysQueue.length()];
+        String[] keysArray;
         int idx = 0;
-        while (keysQueue.length() > 0) {
-            keysArray[idx++] = keysQueue.dequeue();
+        if (this.source == null) {
+            keysArray = new String[this.glossary.size()];
+            for (Map.Pair<String, String> pair : this.glossary) {
+                keysArray[idx++] = pair.key();
+            }
+        } else {
+            keysArray = new String[this.extents.size()];
+            for (Map.Pair<String, long[]> pair : this.extents) {
+                keysArray[idx++] = pair.key();
+            }
         }
         /*
-         * 2) Sort the array of keys using a simple bubble sort algorithm.
+         * 2) Sort the array of keys in index order, in O(n log n) time, using
+         * all processors for large glossaries.
          */
-        for (int i = 0; i < keysArray.length - 1; i++) {
-            for (int j = 0; j < keysArray.length - i - 1; j++) {
-                if (keysArray[j].compareTo(keysArray[j + 1]) > 0) {
-                    String temp = keysArray[j];
-                    keysArray[j] = keysArray[j + 1];
-                    keysArray[j + 1] = temp;
-                }
-            }
+        if (keysArray.length >= PARALLEL_SORT_THRESHOLD) {
+            Arrays.parallelSort(keysArray, this.order);
+        } else {
+            Arrays.sort(keysArray, this.order);
         }
         /*
-         * 3) Generate the index.html file.
+         * Build the term linker once, for all the definitions.
+         */
+        this.linker = new TermLinker(keysArray);
+        /*
+         * 3) Generate the index.html file, unless the key set is unchanged.
          */
         String indexFilePath = outputFolder + "/index.html";
+        String indexHash = hash(String.join("\n", keysArray)
+                .getBytes(StandardCharsets.UTF_8));
+        if (!indexHash.equals(previous.get(null))
+                || !Files.exists(Paths.get(indexFilePath))) {
+            this.writeIndex(indexFilePath, keysArray);
+        }
+        /*
+         * 4) Generate an individual HTML page for each term whose page
+         * changed.
+         */
+        IntFunction<String> definitions = this.definitions(keysArray);
+        String[] pageHashes = this.writeTermPages(outputFolder, keysArray,
+                definitions, previous);
+        /*
+         * 5) Delete the pages of terms that were removed, and record the new
+         * manifest.
+         */
+        for (String term : keysArray) {
+            previous.remove(term);
+        }
+        previous.remove(null);
+        for (String removed : previous.keySet()) {
+            try {
+                Files.deleteIfExists(
+                        Paths.get(outputFolder, removed + ".html"));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        writeManifest(outputFolder, indexHash, keysArray, pageHashes);
+    }
+
+    /**
+     * Returns the definitions of the given terms, by position in
+     * {@code terms}. The result may be called from any thread: the
+     * definitions are either snapshots of the glossary map or, for a
+     * streamed glossary, decoded from a memory mapping of the input file on
+     * each call.
+     *
+     * @param terms
+     *            the terms
+     * @return the function from the position of a term to its definition
+     * @throws UncheckedIOException
+     *             if the input file of a streamed glossary cannot be mapped
+     */
+    private IntFunction<String> definitions(String[] terms) {
+        IntFunction<String> result;
+        if (this.source == null) {
+            String[] definitions = new String[terms.length];
+            for (int i = 0; i < terms.length; i++) {
+                definitions[i] = this.glossary.value(terms[i]);
+            }
+            result = i -> definitions[i];
+        } else {
+            long[] offsets = new long[terms.length];
+            int[] lengths = new int[terms.length];
+            int longest = 0;
+            for (int i = 0; i < terms.length; i++) {
+                long[] extent = this.extents.value(terms[i]);
+                offsets[i] = extent[0];
+                lengths[i] = (int) extent[1];
+                longest = Math.max(longest, lengths[i]);
+            }
+            MappedByteBuffer[] windows;
+            try (FileChannel channel = FileChannel.open(this.source,
+                    StandardOpenOption.READ)) {
+                long size = channel.size();
+                windows = new MappedByteBuffer[(int) ((size + MAP_WINDOW - 1)
+                        / MAP_WINDOW)];
+                for (int k = 0; k < windows.length; k++) {
+                    long start = (long) k * MAP_WINDOW;
+                    windows[k] = channel.map(FileChannel.MapMode.READ_ONLY,
+                            start, Math.min((long) MAP_WINDOW + longest,
+                                    size - start));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            result = i -> decodeDefinition(windows, offsets[i], lengths[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Decodes a definition from the memory-mapped input file: its lines,
+     * joined with spaces and trimmed, as {@code readGlossary} builds it.
+     *
+     * @param windows
+     *            the mappings of the input file
+     * @param offset
+     *            the offset of the definition in the file
+     * @param length
+     *            the length of the definition, in bytes
+     * @return the definition
+     */
+    private static String decodeDefinition(MappedByteBuffer[] windows,
+            long offset, int length) {
+        String definition = "";
+        if (length > 0) {
+            byte[] bytes = new byte[length];
+            /*
+             * Absolute get, which leaves the shared buffer's position alone
+             */
+            windows[(int) (offset / MAP_WINDOW)]
+                    .get((int) (offset % MAP_WINDOW), bytes);
+            String text = new String(bytes, StandardCharsets.UTF_8);
+            definition = String.join(" ", LINE_BREAK.split(text)).trim();
+        }
+        return definition;
+    }
+
+    /**
+     * Writes the index page.
+     *
+     * @param indexFilePath
+     *            the path of the index file
+     * @param keysArray
+     *            the terms, in index order
+     */
+    private void writeIndex(String indexFilePath, String[] keysArray) {
         SimpleWriter indexWriter = new SimpleWriter1L(indexFilePath);
         indexWriter.println("<html>");
         indexWriter.println("<head><title>Glossary Index</title></head>");
@@ -152,50 +651,217 @@ public class Glossary {
          * Create a list item with hyperlink for each term.
          */
         for (String term : keysArray) {
-            indexWriter
-                    .println("<li><a href=\"" + term + ".html\">" + term + "</a></li>");
+            indexWriter.println("<li><a href=\"" + TermLinker.pageHref(term)
+                    + "\">" + term + "</a></li>");
         }
         indexWriter.println("</ul>");
         indexWriter.println("</body>");
         indexWriter.println("</html>");
         indexWriter.close();
+    }
+
+    /**
+     * Returns the SHA-256 hash of {@code bytes}, in hexadecimal.
+     *
+     * @param bytes
+     *            the bytes to hash
+     * @return the hash
+     */
+    private static String hash(byte[] bytes) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        return HEX.formatHex(digest.digest(bytes));
+    }
+
+    /**
+     * Reads the manifest of the last run in {@code outputFolder}.
+     *
+     * @param outputFolder
+     *            the path of the output folder
+     * @return the hash of each term page of the last run, by term, and the
+     *         hash of its key set under the key {@code null}; empty if there
+     *         is no valid manifest
+     */
+    private static HashMap<String, String> readManifest(String outputFolder) {
+        HashMap<String, String> hashes = new HashMap<>();
+        Path manifest = Paths.get(outputFolder, MANIFEST_NAME);
+        if (Files.exists(manifest)) {
+            List<String> lines;
+            try {
+                lines = Files.readAllLines(manifest, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (lines.size() >= 2 && lines.get(0).equals(MANIFEST_HEADER)) {
+                hashes.put(null, lines.get(1));
+                for (String line : lines.subList(2, lines.size())) {
+                    /*
+                     * The hash has no tab, so the term is all before the last
+                     */
+                    int tab = line.lastIndexOf('\t');
+                    if (tab >= 0) {
+                        hashes.put(line.substring(0, tab),
+                                line.substring(tab + 1));
+                    }
+                }
+            }
+        }
+        return hashes;
+    }
+
+    /**
+     * Writes the manifest of this run to {@code outputFolder}, replacing the
+     * previous one only once it is complete.
+     *
+     * @param outputFolder
+     *            the path of the output folder
+     * @param indexHash
+     *            the hash of the key set
+     * @param terms
+     *            the terms
+     * @param pageHashes
+     *            the hashes of their pages, parallel to terms
+     */
+    private static void writeManifest(String outputFolder, String indexHash,
+            String[] terms, String[] pageHashes) {
+        StringBuilder manifest = new StringBuilder();
+        manifest.append(MANIFEST_HEADER).append('\n');
+        manifest.append(indexHash).append('\n');
+        for (int i = 0; i < terms.length; i++) {
+            manifest.append(terms[i]).append('\t').append(pageHashes[i])
+                    .append('\n');
+        }
+        Path target = Paths.get(outputFolder, MANIFEST_NAME);
+        Path temporary = Paths.get(outputFolder, MANIFEST_NAME + ".tmp");
+        try {
+            Files.write(temporary,
+                    manifest.toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Renders the page of each term and writes those that changed, in
+     * parallel on a pool of {@code PAGE_WRITER_THREADS} threads. The terms
+     * are a snapshot in an array, and the definitions come from
+     * {@code definitions}, so the workers never touch the glossary map.
+     *
+     * @param outputFolder
+     *            the path of the folder where the HTML files will be saved
+     * @param terms
+     *            the terms
+     * @param definitions
+     *            the definitions, by position in terms
+     * @param previous
+     *            the hashes of the pages as last written, by term
+     * @return the hashes of the pages, parallel to terms
+     */
+    private String[] writeTermPages(String outputFolder, String[] terms,
+            IntFunction<String> definitions, HashMap<String, String> previous) {
+        String[] hashes = new String[terms.length];
+        ForkJoinPool pool = new ForkJoinPool(PAGE_WRITER_THREADS);
+        try {
+            pool.submit(() -> IntStream.range(0, terms.length).parallel()
+                    .forEach(i -> hashes[i] = this.writeTermPage(outputFolder,
+                            terms[i], definitions.apply(i),
+                            previous.get(terms[i]))))
+                    .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted writing term pages",
+                    e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return hashes;
+    }
+
+    /**
+     * Renders the page of one term into the calling thread's reusable buffer
+     * and, unless it is unchanged, writes it with a single
+     * {@code Files.write}.
+     *
+     * @param outputFolder
+     *            the path of the folder where the HTML file will be saved
+     * @param term
+     *            the term
+     * @param definition
+     *            its definition
+     * @param previousHash
+     *            the hash of the page as last written, or {@code null}
+     * @return the hash of the page
+     * @throws UncheckedIOException
+     *             if the page cannot be written
+     */
+    private String writeTermPage(String outputFolder, String term,
+            String definition, String previousHash) {
+        StringBuilder page = PAGE_BUFFER.get();
+        page.setLength(0);
+        this.renderTermPage(term, definition, page);
+        byte[] bytes = page.toString().getBytes(StandardCharsets.UTF_8);
+        String hash = hash(bytes);
+        Path file = Paths.get(outputFolder, term + ".html");
+        if (!hash.equals(previousHash) || !Files.exists(file)) {
+            try {
+                Files.write(file, bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Appends the HTML page of one term to {@code page}.
+     *
+     * @param term
+     *            the term
+     * @param definition
+     *            its definition
+     * @param page
+     *            the buffer to append the page to
+     */
+    private void renderTermPage(String term, String definition,
+            StringBuilder page) {
         /*
-         * 4) Generate an individual HTML page for each term.
+         * Process the definition to replace occurrences of terms with
+         * hyperlinks.
          */
-        for (String term : keysArray) {
-            String termDefinition = this.glossary.value(term);
-            /*
-             * Process the definition to replace occurrences of terms with
-             * hyperlinks.
-             */
-            String processedDefinition = this.hyperlinkDefinition(termDefinition);
-            String termFilePath = outputFolder + "/" + term + ".html";
-            SimpleWriter termWriter = new SimpleWriter1L(termFilePath);
-            termWriter.println("<html>");
-            termWriter.println("<head><title>" + term + "</title></head>");
-            termWriter.println("<body>");
-            /*
-             * Display the term in red, bold, and italicized text.
-             */
-            termWriter.println("<h1><span style=\"color:red;\"><b><i>" + term
-                    + "</i></b></span></h1>");
-            termWriter.println("<p>" + processedDefinition + "</p>");
-            termWriter.println("<hr>");
-            termWriter.println("<p>Return to <a href=\"index.html\">Index</a>.</p>");
-            termWriter.println("</body>");
-            termWriter.println("</html>");
-            termWriter.close();
-        }
+        String processedDefinition = this.hyperlinkDefinition(definition);
+        page.append("<html>\n");
+        page.append("<head><title>").append(term).append("</title></head>\n");
+        page.append("<body>\n");
+        /*
+         * Display the term in red, bold, and italicized text.
+         */
+        page.append("<h1><span style=\"color:red;\"><b><i>").append(term)
+                .append("</i></b></span></h1>\n");
+        page.append("<p>").append(processedDefinition).append("</p>\n");
+        page.append("<hr>\n");
+        page.append("<p>Return to <a href=\"index.html\">Index</a>.</p>\n");
+        page.append("</body>\n");
+        page.append("</html>\n");
     }
 
     /**
      * Processes the given definition string by replacing any occurrence of a
      * term (from the glossary) with a hyperlink to that term's HTML page.
      * <p>
-     * The method splits the definition into tokens based on whitespace and
-     * removes any leading or trailing punctuation from each token before
-     * checking if it matches a term. If a match is found, the token is replaced
-     * with an HTML hyperlink.
+     * Terms are found as whole words, including terms of several words, with
+     * punctuation around them left outside the link; where matches overlap,
+     * the leftmost and then the longest is linked. The definition is scanned
+     * once with {@code TermLinker}, however many terms there are.
      * </p>
      *
      * @param definition
@@ -204,42 +870,7 @@ public class Glossary {
      *         applicable
      */
     private String hyperlinkDefinition(String definition) {
-        /*
-         * Split the definition based on spaces.
-         */
-        String[] tokens = definition.split(" ");
-        StringBuilder result = new StringBuilder();
-        for (int i = 0; i < tokens.length; i++) {
-            String token = tokens[i];
-            String stripped = token;
-            /*
-             * Remove leading punctuation.
-             */
-            while (stripped.length() > 0
-                    && !Character.isLetterOrDigit(stripped.charAt(0))) {
-                stripped = stripped.substring(1);
-            }
-            /*
-             * Remove trailing punctuation.
-             */
-            while (stripped.length() > 0 && !Character
-                    .isLetterOrDigit(stripped.charAt(stripped.length() - 1))) {
-                stripped = stripped.substring(0, stripped.length() - 1);
-            }
-            /*
-             * If the token (after stripping punctuation) is a glossary key,
-             * replace it with a hyperlink.
-             */
-            if (this.glossary.hasKey(stripped)) {
-                token = token.replace(stripped,
-                        "<a href=\"" + stripped + ".html\">" + stripped + "</a>");
-            }
-            result.append(token);
-            if (i < tokens.length - 1) {
-                result.append(" ");
-            }
-        }
-        return result.toString();
+        return this.linker.link(definition);
     }
 
     /**
@@ -266,8 +897,16 @@ public class Glossary {
         console.close();
 
         Glossary glossary = new Glossary();
-        glossary.readGlossary(inputFile);
-        glossary.generateFiles(outputFolder);
+        /*
+         * Streaming keeps memory use proportional to the number of terms,
+         * however large the definitions.
+         */
+        glossary.readGlossaryStreaming(inputFile);
+        /*
+         * Incremental output has the same content as a full run, but leaves
+         * the unchanged files of an earlier run untouched.
+         */
+        glossary.generateFiles(outputFolder, true);
 
         /*
          * Output a success message.
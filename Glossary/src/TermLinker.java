@@ -0,0 +1,381 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Links glossary terms inside definitions, using an Aho-Corasick automaton
+ * built once over all the terms.
+ * <p>
+ * A definition is scanned in a single pass through the automaton, whatever
+ * the number of terms. A term matches only as a whole word (or words): the
+ * characters just before and just after it, if any, must not be letters or
+ * digits, so punctuation around a term is left outside its link. Terms may
+ * contain spaces. Overlapping matches are resolved leftmost-longest: the
+ * match that starts first wins, and among those starting at the same place,
+ * the longest.
+ * </p>
+ *
+ * @author S. Park
+ */
+final class TermLinker {
+
+    /**
+     * Initial capacity of the node arrays.
+     */
+    private static final int INITIAL_NODES = 64;
+
+    /**
+     * Sentinel for "no node".
+     */
+    private static final int NONE = -1;
+
+    /**
+     * Bits used for the character in a transition key.
+     */
+    private static final int CHAR_BITS = Character.SIZE;
+
+    /**
+     * Hexadecimal digits for percent-encoding.
+     */
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * Transitions of the trie: keys are {@code (node << CHAR_BITS) | c}, in
+     * an open-addressing hash table with linear probing; {@code 0} marks an
+     * empty slot (the root never has a transition key of 0 as that would
+     * need the character 0, which is never inserted).
+     */
+    private long[] edgeKeys;
+
+    /**
+     * Targets of the transitions, parallel to {@code edgeKeys}.
+     */
+    private int[] edgeTargets;
+
+    /**
+     * Number of transitions.
+     */
+    private int edgeCount;
+
+    /**
+     * Failure link of each node: the node for the longest proper suffix of
+     * its string that is also in the trie.
+     */
+    private int[] fail;
+
+    /**
+     * Length of the term ending at each node, or 0 if none does.
+     */
+    private int[] termLength;
+
+    /**
+     * Dictionary link of each node: the nearest node on its failure chain at
+     * which a term ends, or {@code NONE}.
+     */
+    private int[] outputLink;
+
+    /**
+     * Number of nodes; node 0 is the root.
+     */
+    private int nodeCount;
+
+    /**
+     * Builds the automaton for the given terms.
+     *
+     * @param terms
+     *            the glossary terms
+     * @requires [no term is empty or contains the character 0]
+     */
+    TermLinker(String[] terms) {
+        assert terms != null : "Violation of: terms is not null";
+
+        this.fail = new int[INITIAL_NODES];
+        this.termLength = new int[INITIAL_NODES];
+        this.outputLink = new int[INITIAL_NODES];
+        this.nodeCount = 1;
+        int capacity = Integer.highestOneBit(Math.max(INITIAL_NODES,
+                4 * terms.length)) * 2;
+        this.edgeKeys = new long[capacity];
+        this.edgeTargets = new int[capacity];
+        this.edgeCount = 0;
+        for (String term : terms) {
+            this.insert(term);
+        }
+        this.buildLinks();
+    }
+
+    /**
+     * Returns the slot of {@code key} in the transition table: where it is,
+     * or the empty slot where it would go.
+     *
+     * @param key
+     *            the transition key
+     * @return the slot for key
+     */
+    private int slot(long key) {
+        int mask = this.edgeKeys.length - 1;
+        long h = key * 0x9E3779B97F4A7C15L;
+        int i = (int) (h >>> (Long.SIZE - Integer.SIZE)) & mask;
+        while (this.edgeKeys[i] != 0 && this.edgeKeys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the node reached from {@code node} on {@code c}.
+     *
+     * @param node
+     *            the node
+     * @param c
+     *            the character
+     * @return the target node, or {@code NONE} if there is no transition
+     */
+    private int transition(int node, char c) {
+        long key = ((long) node << CHAR_BITS) | c;
+        int i = this.slot(key);
+        int result = NONE;
+        if (this.edgeKeys[i] == key) {
+            result = this.edgeTargets[i];
+        }
+        return result;
+    }
+
+    /**
+     * Adds a transition, growing the table if it gets more than half full.
+     *
+     * @param node
+     *            the source node
+     * @param c
+     *            the character
+     * @param target
+     *            the target node
+     */
+    private void addTransition(int node, char c, int target) {
+        if (2 * (this.edgeCount + 1) > this.edgeKeys.length) {
+            long[] oldKeys = this.edgeKeys;
+            int[] oldTargets = this.edgeTargets;
+            this.edgeKeys = new long[2 * oldKeys.length];
+            this.edgeTargets = new int[2 * oldKeys.length];
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] != 0) {
+                    int i = this.slot(oldKeys[j]);
+                    this.edgeKeys[i] = oldKeys[j];
+                    this.edgeTargets[i] = oldTargets[j];
+                }
+            }
+        }
+        long key = ((long) node << CHAR_BITS) | c;
+        int i = this.slot(key);
+        this.edgeKeys[i] = key;
+        this.edgeTargets[i] = target;
+        this.edgeCount++;
+    }
+
+    /**
+     * Adds {@code term} to the trie.
+     *
+     * @param term
+     *            the term
+     */
+    private void insert(String term) {
+        int node = 0;
+        for (int k = 0; k < term.length(); k++) {
+            char c = term.charAt(k);
+            int next = this.transition(node, c);
+            if (next == NONE) {
+                if (this.nodeCount == this.fail.length) {
+                    int capacity = 2 * this.nodeCount;
+                    this.fail = Arrays.copyOf(this.fail, capacity);
+                    this.termLength = Arrays.copyOf(this.termLength, capacity);
+                    this.outputLink = Arrays.copyOf(this.outputLink, capacity);
+                }
+                next = this.nodeCount;
+                this.nodeCount++;
+                this.addTransition(node, c, next);
+            }
+            node = next;
+        }
+        this.termLength[node] = term.length();
+    }
+
+    /**
+     * Computes the failure and dictionary links, breadth first from the root.
+     */
+    private void buildLinks() {
+        /*
+         * Children of each node, from the transition table, so the trie can
+         * be walked breadth first
+         */
+        int[] childStart = new int[this.nodeCount + 1];
+        for (long key : this.edgeKeys) {
+            if (key != 0) {
+                childStart[(int) (key >>> CHAR_BITS) + 1]++;
+            }
+        }
+        for (int v = 0; v < this.nodeCount; v++) {
+            childStart[v + 1] += childStart[v];
+        }
+        int[] childNode = new int[this.edgeCount];
+        char[] childChar = new char[this.edgeCount];
+        int[] filled = Arrays.copyOf(childStart, this.nodeCount);
+        for (int i = 0; i < this.edgeKeys.length; i++) {
+            long key = this.edgeKeys[i];
+            if (key != 0) {
+                int parent = (int) (key >>> CHAR_BITS);
+                childNode[filled[parent]] = this.edgeTargets[i];
+                childChar[filled[parent]] = (char) key;
+                filled[parent]++;
+            }
+        }
+
+        int[] queue = new int[this.nodeCount];
+        int head = 0;
+        int tail = 0;
+        this.fail[0] = 0;
+        this.outputLink[0] = NONE;
+        queue[tail] = 0;
+        tail++;
+        while (head < tail) {
+            int v = queue[head];
+            head++;
+            for (int e = childStart[v]; e < childStart[v + 1]; e++) {
+                int u = childNode[e];
+                char c = childChar[e];
+                int f = NONE;
+                if (v != 0) {
+                    f = this.fail[v];
+                    int next = this.transition(f, c);
+                    while (next == NONE && f != 0) {
+                        f = this.fail[f];
+                        next = this.transition(f, c);
+                    }
+                    f = next;
+                }
+                if (f == NONE) {
+                    f = 0;
+                }
+                this.fail[u] = f;
+                if (this.termLength[f] > 0) {
+                    this.outputLink[u] = f;
+                } else {
+                    this.outputLink[u] = this.outputLink[f];
+                }
+                queue[tail] = u;
+                tail++;
+            }
+        }
+    }
+
+    /**
+     * Reports whether {@code c} can be part of a word.
+     *
+     * @param c
+     *            the character
+     * @return true iff c is a letter or digit
+     */
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c);
+    }
+
+    /**
+     * Returns the relative URL of the page of {@code term}, for an
+     * {@code href} attribute. Every byte of the UTF-8 encoding of the page
+     * name other than an ASCII letter, digit, {@code -}, {@code .}, {@code _},
+     * or {@code ~} is percent-encoded, so a term with spaces, quotes, or
+     * characters such as {@code #} and {@code ?} still links to its page.
+     *
+     * @param term
+     *            the term
+     * @return the URL of the page of term
+     * @ensures pageHref = [term + ".html", percent-encoded]
+     */
+    static String pageHref(String term) {
+        assert term != null : "Violation of: term is not null";
+
+        byte[] bytes = (term + ".html").getBytes(StandardCharsets.UTF_8);
+        StringBuilder result = new StringBuilder(bytes.length);
+        for (byte b : bytes) {
+            char c = (char) (b & 0xFF);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+                    || (c >= '0' && c <= '9') || "-._~".indexOf(c) >= 0) {
+                result.append(c);
+            } else {
+                result.append('%').append(HEX_DIGITS[c >>> 4])
+                        .append(HEX_DIGITS[c & 0xF]);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Finds the terms in {@code text}, leftmost-longest, whole words only.
+     *
+     * @param text
+     *            the text to scan
+     * @return for each position of text, the end of the term matched there,
+     *         or 0 if none is
+     */
+    private int[] matchEnds(String text) {
+        int n = text.length();
+        int[] longestEnd = new int[n];
+        int node = 0;
+        for (int i = 0; i < n; i++) {
+            char c = text.charAt(i);
+            int next = this.transition(node, c);
+            while (next == NONE && node != 0) {
+                node = this.fail[node];
+                next = this.transition(node, c);
+            }
+            if (next == NONE) {
+                next = 0;
+            }
+            node = next;
+            int end = i + 1;
+            if (end == n || !isWordChar(text.charAt(end))) {
+                int out = node;
+                if (this.termLength[out] == 0) {
+                    out = this.outputLink[out];
+                }
+                while (out != NONE) {
+                    int start = end - this.termLength[out];
+                    if ((start == 0 || !isWordChar(text.charAt(start - 1)))
+                            && end > longestEnd[start]) {
+                        longestEnd[start] = end;
+                    }
+                    out = this.outputLink[out];
+                }
+            }
+        }
+        return longestEnd;
+    }
+
+    /**
+     * Returns {@code text} with each term it contains replaced with a
+     * hyperlink to that term's page.
+     *
+     * @param text
+     *            the text to process
+     * @return the text with hyperlinks inserted
+     */
+    String link(String text) {
+        assert text != null : "Violation of: text is not null";
+
+        int[] longestEnd = this.matchEnds(text);
+        StringBuilder result = new StringBuilder(text.length());
+        int i = 0;
+        while (i < text.length()) {
+            int end = longestEnd[i];
+            if (end > 0) {
+                String term = text.substring(i, end);
+                result.append("<a href=\"").append(pageHref(term))
+                        .append("\">").append(term).append("</a>");
+                i = end;
+            } else {
+                result.append(text.charAt(i));
+                i++;
+            }
+        }
+        return result.toString();
+    }
+
+}
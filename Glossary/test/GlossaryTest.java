@@ -2,8 +2,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.util.List;
 
 import org.junit.Rule;
@@ -106,6 +108,36 @@ public class GlossaryTest {
         assertTrue(items.get(2).contains(">zebra<"));
     }
 
+    /**
+     * Test that index.html lists terms in the configured collation order.
+     */
+    @Test
+    public void testIndexHtmlCaseInsensitiveOrder() throws IOException {
+        String input = "banana\nDefinition.\n\n" + "Cherry\nDefinition.\n\n"
+                + "apple\nDefinition.\n\n" + "Apple\nDefinition.\n\n";
+        Path in = this.writeInputFile("terms.txt", input);
+        String out = this.tempFolder.newFolder("site").getAbsolutePath();
+
+        Glossary g = new Glossary(Glossary.caseInsensitiveOrder());
+        g.readGlossary(in.toString());
+        g.generateFiles(out);
+
+        List<String> items = Files
+                .readAllLines(this.tempFolder.getRoot().toPath()
+                        .resolve("site/index.html"))
+                .stream().filter(l -> l.trim().startsWith("<li>"))
+                .map(String::trim).toList();
+
+        /*
+         * Case is ignored, with ties in natural order (upper case first)
+         */
+        assertEquals(4, items.size());
+        assertTrue(items.get(0).contains(">Apple<"));
+        assertTrue(items.get(1).contains(">apple<"));
+        assertTrue(items.get(2).contains(">banana<"));
+        assertTrue(items.get(3).contains(">Cherry<"));
+    }
+
     /**
      * Test that each term page formats the term correctly and includes a
      * return‐to‐index link.
@@ -162,4 +194,187 @@ public class GlossaryTest {
         assertTrue(javaPage.stream()
                 .anyMatch(l -> l.contains("<a href=\"python.html\">python</a>")));
     }
+
+    /**
+     * Test that multi-word terms are linked, preferring the longest term that
+     * starts at the same place.
+     */
+    @Test
+    public void testMultiWordLongestMatchLinking() throws IOException {
+        String input = "number\nA count.\n\n"
+                + "natural number\nA number >= 0.\n\n"
+                + "digit\nPart of a natural number, or of a number.\n\n";
+        Path in = this.writeInputFile("terms.txt", input);
+        String out = this.tempFolder.getRoot().getAbsolutePath();
+
+        Glossary g = new Glossary();
+        g.readGlossary(in.toString());
+        g.generateFiles(out);
+
+        List<String> digitPage = Files.readAllLines(
+                this.tempFolder.getRoot().toPath().resolve("digit.html"));
+
+        assertTrue(digitPage.stream().anyMatch(l -> l.contains(
+                "Part of a <a href=\"natural%20number.html\">natural "
+                        + "number</a>, or of a "
+                        + "<a href=\"number.html\">number</a>.")));
+        List<String> index = Files.readAllLines(
+                this.tempFolder.getRoot().toPath().resolve("index.html"));
+        assertTrue(index.stream().anyMatch(l -> l.contains(
+                "<li><a href=\"natural%20number.html\">natural number</a>"
+                        + "</li>")));
+    }
+
+    /**
+     * Test that terms are only linked as whole words, and that surrounding
+     * punctuation stays outside the link.
+     */
+    @Test
+    public void testWholeWordLinking() throws IOException {
+        String input = "java\nA language.\n\n"
+                + "script\nNot java, javascript, or (java)script.\n\n";
+        Path in = this.writeInputFile("terms.txt", input);
+        String out = this.tempFolder.getRoot().getAbsolutePath();
+
+        Glossary g = new Glossary();
+        g.readGlossary(in.toString());
+        g.generateFiles(out);
+
+        List<String> scriptPage = Files.readAllLines(
+                this.tempFolder.getRoot().toPath().resolve("script.html"));
+
+        assertTrue(scriptPage.stream().anyMatch(l -> l.contains(
+                "<p>Not <a href=\"java.html\">java</a>, javascript, or "
+                        + "(<a href=\"java.html\">java</a>)"
+                        + "<a href=\"script.html\">script</a>.</p>")));
+    }
+
+    /**
+     * Test that incremental generation rewrites only the pages that changed,
+     * including pages whose linked terms changed, and deletes removed pages;
+     * and that when only a definition changes, only its page is rewritten.
+     */
+    @Test
+    public void testIncrementalRegeneration() throws IOException {
+        Path in = this.writeInputFile("terms.txt", "apple\nA fruit.\n\n"
+                + "banana\nNot a pear.\n\n" + "cherry\nA red fruit.\n\n");
+        Path site = this.tempFolder.newFolder("site").toPath();
+        String out = site.toString();
+
+        Glossary g = new Glossary();
+        g.readGlossary(in.toString());
+        g.generateFiles(out, true);
+        /*
+         * Mark unchanged pages, so that rewriting them would show
+         */
+        Files.write(site.resolve("apple.html"), "untouched".getBytes());
+        Files.write(site.resolve("index.html"), "untouched".getBytes());
+
+        Files.write(in, ("apple\nA fruit.\n\n" + "banana\nNot a pear.\n\n"
+                + "pear\nA fruit.\n\n").getBytes());
+        Glossary g2 = new Glossary();
+        g2.readGlossary(in.toString());
+        g2.generateFiles(out, true);
+
+        assertEquals("untouched",
+                new String(Files.readAllBytes(site.resolve("apple.html"))));
+        assertTrue("banana.html should link the new term pear",
+                Files.readAllLines(site.resolve("banana.html")).stream()
+                        .anyMatch(l -> l.contains(
+                                "<a href=\"pear.html\">pear</a>")));
+        assertTrue("pear.html should be generated",
+                Files.exists(site.resolve("pear.html")));
+        assertTrue("cherry.html should be deleted",
+                !Files.exists(site.resolve("cherry.html")));
+        assertTrue("index.html should be rewritten for the new key set",
+                Files.readAllLines(site.resolve("index.html")).stream()
+                        .anyMatch(l -> l.contains("pear.html")));
+
+        /*
+         * Same key set, one changed definition: backdate every page, so that
+         * rewriting any of them would show in its last-modified time
+         */
+        FileTime old = FileTime.fromMillis(0);
+        String[] pages = { "index", "apple", "banana", "pear" };
+        for (String page : pages) {
+            Files.setLastModifiedTime(site.resolve(page + ".html"), old);
+        }
+        List<String> index = Files.readAllLines(site.resolve("index.html"));
+        Files.write(in, ("apple\nA fruit.\n\n" + "banana\nNot a pear.\n\n"
+                + "pear\nA green fruit.\n\n").getBytes());
+        Glossary g3 = new Glossary();
+        g3.readGlossary(in.toString());
+        g3.generateFiles(out, true);
+
+        for (String page : new String[] { "index", "apple", "banana" }) {
+            assertEquals(page + ".html should be left alone", old,
+                    Files.getLastModifiedTime(site.resolve(page + ".html")));
+        }
+        assertEquals(index, Files.readAllLines(site.resolve("index.html")));
+        assertTrue("pear.html should be rewritten with its new definition",
+                Files.readAllLines(site.resolve("pear.html")).stream()
+                        .anyMatch(l -> l.contains("A green fruit.")));
+        assertTrue("pear.html should have a new last-modified time",
+                !old.equals(Files.getLastModifiedTime(
+                        site.resolve("pear.html"))));
+    }
+
+    /**
+     * Test that a glossary read by streaming generates the same files as one
+     * read into memory, whatever the line breaks and blank lines.
+     */
+    @Test
+    public void testStreamingReaderMatchesInMemoryReader()
+            throws IOException {
+        String input = "\n  \nalpha \r\nFirst line,\r\n"
+                + "  second line of beta.  \r\n" + " \t \r\n"
+                + "beta\rA letter\rafter alpha.\r\r\n\n"
+                + "delta\nA caf\u00e9 serving alpha and beta.\n\n"
+                + "gamma\nNo blank line at end.";
+        Path in = this.tempFolder.newFile("terms.txt").toPath();
+        Files.write(in, input.getBytes(StandardCharsets.UTF_8));
+        Path inMemory = this.tempFolder.newFolder("memory").toPath();
+        Path streamed = this.tempFolder.newFolder("streamed").toPath();
+
+        Glossary g = new Glossary();
+        g.readGlossary(in.toString());
+        g.generateFiles(inMemory.toString());
+        Glossary s = new Glossary();
+        s.readGlossaryStreaming(in.toString());
+        s.generateFiles(streamed.toString());
+
+        String[] pages = { "index", "alpha", "beta", "delta", "gamma" };
+        for (String page : pages) {
+            assertEquals(page,
+                    Files.readAllLines(inMemory.resolve(page + ".html")),
+                    Files.readAllLines(streamed.resolve(page + ".html")));
+        }
+        assertTrue(Files.readAllLines(streamed.resolve("alpha.html"))
+                .contains("<p>First line,   second line of "
+                        + "<a href=\"beta.html\">beta</a>.</p>"));
+    }
+
+    /**
+     * Test that a glossary read into memory after one read by streaming is
+     * the one whose files are generated.
+     */
+    @Test
+    public void testReadGlossaryAfterStreamingReplacesSource()
+            throws IOException {
+        Path streamed = this.writeInputFile("streamed.txt",
+                "alpha\nThe first letter.\n\n");
+        Path inMemory = this.writeInputFile("memory.txt",
+                "beta\nThe second letter.\n\n");
+        Path site = this.tempFolder.newFolder("site").toPath();
+
+        Glossary g = new Glossary();
+        g.readGlossaryStreaming(streamed.toString());
+        g.readGlossary(inMemory.toString());
+        g.generateFiles(site.toString());
+
+        assertTrue("beta.html should be generated",
+                Files.exists(site.resolve("beta.html")));
+        assertTrue("alpha.html should not be generated",
+                !Files.exists(site.resolve("alpha.html")));
+    }
 }
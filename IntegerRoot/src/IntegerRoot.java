@@ -16,23 +16,43 @@ public final class IntegerRoot {
     }
 
     /**
-     * Returns {@code n} to the power {@code p}.
+     * Compares {@code base} raised to the power {@code p} with {@code bound}.
+     * The power is built up one factor at a time in a {@code long}, and the
+     * multiplication stops as soon as the running product exceeds
+     * {@code bound}, so it never overflows. A base of 0 or 1, whose powers
+     * never grow, is answered without multiplying.
      *
-     * @param n
-     *            the number to which we want to apply the power
+     * @param base
+     *            the base
      * @param p
-     *            the power
-     * @return the number to the power
-     * @requires Integer.MIN_VALUE <= n ^ (p) <= Integer.MAX_VALUE and p >= 0
-     * @ensures power = n ^ (p)
+     *            the exponent
+     * @param bound
+     *            the number to compare against
+     * @return a negative integer, zero, or a positive integer as
+     *         {@code base ^ (p)} is less than, equal to, or greater than
+     *         {@code bound}
+     * @requires base >= 0 and p >= 0 and bound >= 0
+     * @ensures <pre>
+     * compareToPower < 0  iff  base ^ (p) < bound  and
+     * compareToPower = 0  iff  base ^ (p) = bound  and
+     * compareToPower > 0  iff  base ^ (p) > bound
+     * </pre>
      */
-    private static int power(int n, int p) {
-        int result = 1, count = 0;
-        while (count < p) {
-            result *= n;
-            count++;
+    private static int compareToPower(int base, int p, int bound) {
+        long product = 1;
+        if (p > 0 && base <= 1) {
+            /*
+             * 0 ^ (p) = 0 and 1 ^ (p) = 1 for p > 0
+             */
+            product = base;
+        } else {
+            int count = 0;
+            while (count < p && product <= bound) {
+                product *= base;
+                count++;
+            }
         }
-        return result;
+        return Long.compare(product, bound);
     }
 
     /**
@@ -60,7 +80,7 @@ public final class IntegerRoot {
 
         while ((tooHigh - lowEnough) > 1) {
             int guess = (tooHigh + lowEnough) / 2;
-            if (n < power(guess, r)) {
+            if (compareToPower(guess, r, n) > 0) {
                 tooHigh = guess;
             } else {
                 lowEnough = guess;
@@ -0,0 +1,181 @@
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Headless batch driver for the Natural Number Calculator.
+ * <p>
+ * Each non-blank input line (lines starting with {@code #} are comments) is an
+ * RPN program, run from a fresh model through {@code NNCalcController1} with
+ * a {@code NNCalcViewHeadless}, exactly as the corresponding button presses
+ * would be in {@code NNCalcView1}. Tokens are separated by white space:
+ * </p>
+ * <ul>
+ * <li>a string of digits presses those digit buttons; as in the GUI, digits
+ * typed right after an operator start a new number (the previous result is
+ * entered first), and digits typed after another number are appended to it,
+ * so separate two numbers with {@code enter};</li>
+ * <li>{@code clear}, {@code swap}, {@code enter};</li>
+ * <li>{@code +}, {@code -}, {@code *}, {@code /}, {@code power}, and
+ * {@code root}.</li>
+ * </ul>
+ * <p>
+ * For each program one line is written: the final bottom operand, or
+ * {@code error:} followed by the reason when an operation is not allowed for
+ * the current operands, is refused by the cost limits, or is unknown. A
+ * summary with the total time goes to the error stream.
+ * </p>
+ * <p>
+ * Usage: {@code NNCalcBatch [input-file [output-file]]}; without arguments,
+ * programs are read from standard input and results written to standard
+ * output.
+ * </p>
+ *
+ * @author Sang Park
+ */
+public final class NNCalcBatch {
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private NNCalcBatch() {
+    }
+
+    /**
+     * State of user interaction: last event "seen", as in {@code NNCalcView1}.
+     */
+    private enum State {
+        /**
+         * Last event was clear, enter, another operator, or digit entry, resp.
+         */
+        SAW_CLEAR, SAW_ENTER_OR_SWAP, SAW_OTHER_OP, SAW_DIGIT
+    }
+
+    /**
+     * Nanoseconds per millisecond.
+     */
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    /**
+     * Runs one RPN program and returns its result.
+     *
+     * @param program
+     *            the program, as white-space separated tokens
+     * @return the final bottom operand, or "error: " followed by the reason
+     *         the program could not be completed
+     * @ensures run = [result of running program on a fresh calculator]
+     */
+    private static String run(String program) {
+        NNCalcModel model = new NNCalcModel1();
+        NNCalcViewHeadless view = new NNCalcViewHeadless();
+        NNCalcController controller = new NNCalcController1(model, view, false);
+
+        State state = State.SAW_CLEAR;
+        String error = null;
+        String[] tokens = program.trim().split("\\s+");
+        int i = 0;
+        while (error == null && i < tokens.length) {
+            String token = tokens[i];
+            if (token.matches("\\d+")) {
+                if (state == State.SAW_ENTER_OR_SWAP) {
+                    controller.processClearEvent();
+                } else if (state == State.SAW_OTHER_OP) {
+                    controller.processEnterEvent();
+                    controller.processClearEvent();
+                }
+                for (int k = 0; k < token.length(); k++) {
+                    controller.processAddNewDigitEvent(token.charAt(k) - '0');
+                }
+                state = State.SAW_DIGIT;
+            } else if (token.equals("clear")) {
+                controller.processClearEvent();
+                state = State.SAW_CLEAR;
+            } else if (token.equals("swap")) {
+                controller.processSwapEvent();
+                state = State.SAW_ENTER_OR_SWAP;
+            } else if (token.equals("enter")) {
+                controller.processEnterEvent();
+                state = State.SAW_ENTER_OR_SWAP;
+            } else if (token.equals("+")) {
+                controller.processAddEvent();
+                state = State.SAW_OTHER_OP;
+            } else if (token.equals("-") && view.subtractAllowed()) {
+                controller.processSubtractEvent();
+                state = State.SAW_OTHER_OP;
+            } else if (token.equals("*")) {
+                controller.processMultiplyEvent();
+                state = State.SAW_OTHER_OP;
+            } else if (token.equals("/") && view.divideAllowed()) {
+                controller.processDivideEvent();
+                state = State.SAW_OTHER_OP;
+            } else if (token.equals("power") && view.powerAllowed()) {
+                controller.processPowerEvent();
+                state = State.SAW_OTHER_OP;
+            } else if (token.equals("root") && view.rootAllowed()) {
+                controller.processRootEvent();
+                state = State.SAW_OTHER_OP;
+            } else if (token.matches("-|/|power|root")) {
+                error = "'" + token + "' not allowed at token " + (i + 1);
+            } else {
+                error = "unknown token '" + token + "'";
+            }
+            String refusal = view.takeRefusal();
+            if (refusal != null) {
+                error = "'" + token + "' refused: "
+                        + refusal.replaceAll("\\R", "; ");
+            }
+            String failure = view.takeFailure();
+            if (failure != null) {
+                error = "'" + token + "' failed: " + failure.replaceAll("\\R", "; ");
+            }
+            i++;
+        }
+
+        String result;
+        if (error == null) {
+            result = model.bottom().toString();
+        } else {
+            result = "error: " + error;
+        }
+        return result;
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments: optional input file name and
+     *            optional output file name
+     */
+    public static void main(String[] args) {
+        SimpleReader in;
+        if (args.length > 0) {
+            in = new SimpleReader1L(args[0]);
+        } else {
+            in = new SimpleReader1L();
+        }
+        SimpleWriter out;
+        if (args.length > 1) {
+            out = new SimpleWriter1L(args[1]);
+        } else {
+            out = new SimpleWriter1L();
+        }
+
+        long start = System.nanoTime();
+        int programs = 0;
+        while (!in.atEOS()) {
+            String line = in.nextLine().trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                out.println(run(line));
+                programs++;
+            }
+        }
+        long millis = (System.nanoTime() - start) / NANOS_PER_MILLI;
+        System.err.println(programs + " programs in " + millis + " ms");
+
+        in.close();
+        out.close();
+    }
+
+}
@@ -77,16 +77,20 @@ public interface NNCalcController {
     void processSubtractEvent();
 
     /**
-     * Processes event to do a multiply operation.
+     * Processes event to do a multiply operation, unless it is refused by the
+     * cost limits or the user declines to confirm it, in which case
+     * this.model is left unchanged.
      *
+     * @return true iff the operation was applied
      * @updates this.model, this.view
      * @ensures <pre>
-     * this.mode.top = 0  and
-     * this.model.bottom = #this.model.top * #this.model.bottom  and
+     * [if processMultiplyEvent then
+     *   this.mode.top = 0  and
+     *   this.model.bottom = #this.model.top * #this.model.bottom]  and
      * [this.view has been updated to match this.model]
      * </pre>
      */
-    void processMultiplyEvent();
+    boolean processMultiplyEvent();
 
     /**
      * Processes event to do a divide operation.
@@ -103,31 +107,45 @@ public interface NNCalcController {
     void processDivideEvent();
 
     /**
-     * Processes event to do a power operation.
+     * Processes event to do a power operation, unless it is refused by the
+     * cost limits or the user declines to confirm it. The computation may
+     * continue in the background after this method returns; this.model is
+     * updated, this.view made consistent with it, and
+     * {@code NNCalcView.reportApplied} called, when it completes, unless it
+     * is cancelled or fails.
      *
+     * @return true iff the operation was applied before returning
      * @updates this.model, this.view
      * @requires this.model.bottom <= INT_LIMIT
      * @ensures <pre>
-     * this.model.top = 0  and
-     * this.model.bottom = #this.model.top ^ (#this.model.bottom)  and
+     * [if processPowerEvent then
+     *   this.model.top = 0  and
+     *   this.model.bottom = #this.model.top ^ (#this.model.bottom)]  and
      * [this.view has been updated to match this.model]
      * </pre>
      */
-    void processPowerEvent();
+    boolean processPowerEvent();
 
     /**
-     * Processes event to do a root operation.
+     * Processes event to do a root operation, unless it is refused by the
+     * cost limits or the user declines to confirm it. The computation may
+     * continue in the background after this method returns; this.model is
+     * updated, this.view made consistent with it, and
+     * {@code NNCalcView.reportApplied} called, when it completes, unless it
+     * is cancelled or fails.
      *
+     * @return true iff the operation was applied before returning
      * @updates this.model, this.view
      * @requires 2 <= this.model.bottom <= INT_LIMIT
      * @ensures <pre>
-     * this.model.top = 0  and
-     * this.model.bottom =
-     *   [the floor of the #this.model.bottom root of #this.model.top]  and
+     * [if processRootEvent then
+     *   this.model.top = 0  and
+     *   this.model.bottom =
+     *     [the floor of the #this.model.bottom root of #this.model.top]]  and
      * [this.view has been updated to match this.model]
      * </pre>
      */
-    void processRootEvent();
+    boolean processRootEvent();
 
     /**
      * Processes event to add a new (low-order) digit to the bottom operand.
@@ -144,4 +162,13 @@ public interface NNCalcController {
      */
     void processAddNewDigitEvent(int digit);
 
+    /**
+     * Processes event to cancel the power or root operation in progress, if
+     * any; the operands are left as they were before the operation started.
+     *
+     * @updates this.view
+     * @ensures [this.view has been updated to match this.model]
+     */
+    void processCancelEvent();
+
 }
@@ -1,5 +1,10 @@
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+
 import components.naturalnumber.NaturalNumber;
-import components.naturalnumber.NaturalNumber2;
 
 /**
  * Controller class.
@@ -18,23 +23,328 @@ public final class NNCalcController1 implements NNCalcController {
      */
     private final NNCalcView view;
 
+    /**
+     * Whether power and root run on a background thread; if not, they run to
+     * completion on the calling thread.
+     */
+    private final boolean background;
+
+    /**
+     * Power or root computation in progress, or {@code null} if there is
+     * none.
+     */
+    private Computation computation;
+
     /**
      * Useful constants.
      */
-    private static final NaturalNumber TWO = new NaturalNumber2(2),
-            INT_LIMIT = new NaturalNumber2(Integer.MAX_VALUE);
+    private static final NaturalNumber TWO = new NaturalNumber3(2),
+            INT_LIMIT = new NaturalNumber3(Integer.MAX_VALUE);
 
     /**
-     * Updates this.view to display this.model, and to allow only operations
-     * that are legal given this.model.
+     * Maximum value of the progress reported to the view.
+     */
+    private static final int PROGRESS_MAX = 100;
+
+    /**
+     * Number of bits per decimal digit, log2(10).
+     */
+    private static final double BITS_PER_DIGIT = Math.log(10) / Math.log(2);
+
+    /**
+     * Results of recent multiply, divide, power, and root operations, shared
+     * by all controllers; bounded by the {@code nncalc.cacheDigits} system
+     * property (total digits of the cached operands and results).
+     */
+    private static final NNCalcResultCache RESULTS = new NNCalcResultCache(
+            Long.getLong("nncalc.cacheDigits", 10_000_000L));
+
+    /**
+     * Computation of a power or root, normally on a background thread. When it
+     * completes (and was not cancelled), the result replaces the bottom
+     * operand and the top operand is cleared, on the event dispatch thread.
+     * <p>
+     * A cancelled computation only stops between steps, and a single step (a
+     * multiplication of huge numbers) can take a long time; the view stays
+     * busy until the worker has really stopped, so that no new computation
+     * competes with it for the processor and memory.
+     * </p>
+     */
+    private abstract class Computation extends SwingWorker<NaturalNumber, Void> {
+
+        /**
+         * Name of the operation, and the operands it was started with, under
+         * which the result is cached.
+         */
+        private final String operation;
+
+        /**
+         * Copies of the operands the computation was started with.
+         */
+        private final NaturalNumber top, bottom;
+
+        /**
+         * Whether the worker has started computing, or will now never start.
+         */
+        private final AtomicBoolean started = new AtomicBoolean(false);
+
+        /**
+         * Whether the worker has stopped computing.
+         */
+        private final AtomicBoolean stopped = new AtomicBoolean(false);
+
+        /**
+         * Whether the end of the computation has been handed to
+         * {@code finishComputation}, which must happen exactly once.
+         */
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+
+        /**
+         * Constructor.
+         *
+         * @param operation
+         *            name of the operation, for the result cache
+         */
+        Computation(String operation) {
+            this.operation = operation;
+            this.top = copy(NNCalcController1.this.model.top());
+            this.bottom = copy(NNCalcController1.this.model.bottom());
+        }
+
+        /**
+         * Computes the result.
+         *
+         * @return the result, or anything if the computation was cancelled
+         */
+        protected abstract NaturalNumber compute();
+
+        @Override
+        protected final NaturalNumber doInBackground() {
+            NaturalNumber result = null;
+            if (this.started.compareAndSet(false, true)) {
+                try {
+                    result = this.compute();
+                } finally {
+                    /*
+                     * If cancelled, done() has already run, leaving the end of
+                     * the computation to this thread
+                     */
+                    this.stopped.set(true);
+                    if (this.isCancelled() && this.finished.compareAndSet(false, true)) {
+                        SwingUtilities.invokeLater(
+                                () -> NNCalcController1.this.finishComputation(null));
+                    }
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Reports progress of the computation to the view, if it runs in the
+         * background.
+         *
+         * @param done
+         *            amount of work done
+         * @param total
+         *            total amount of work
+         * @requires 0 <= done <= total and total > 0
+         */
+        protected final void reportProgress(long done, long total) {
+            if (NNCalcController1.this.background) {
+                this.setProgress((int) (PROGRESS_MAX * done / total));
+            }
+        }
+
+        @Override
+        protected final void done() {
+            if (this.isCancelled()) {
+                /*
+                 * Cancelled: the end of the computation waits for the worker
+                 * to stop, unless it never started or has already stopped
+                 */
+                boolean idle = this.started.compareAndSet(false, true)
+                        || this.stopped.get();
+                if (idle && this.finished.compareAndSet(false, true)) {
+                    NNCalcController1.this.finishComputation(null);
+                }
+            } else {
+                NaturalNumber result = null;
+                try {
+                    result = this.get();
+                } catch (ExecutionException e) {
+                    NNCalcController1.this.reportFailure(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    NNCalcController1.this.reportFailure(e);
+                } finally {
+                    /*
+                     * Whatever happened, unlock the view
+                     */
+                    NNCalcController1.this.finishComputation(result);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Computation of {@code base ^ (exponent)} by square-and-multiply, with
+     * progress measured in bits of the exponent.
+     */
+    private final class PowerComputation extends Computation {
+
+        /**
+         * The base; consumed by the computation.
+         */
+        private final NaturalNumber base;
+
+        /**
+         * The exponent.
+         */
+        private final int exponent;
+
+        /**
+         * Constructor.
+         *
+         * @param base
+         *            the base, which the computation takes ownership of
+         * @param exponent
+         *            the exponent
+         */
+        PowerComputation(NaturalNumber base, int exponent) {
+            super("power");
+            this.base = base;
+            this.exponent = exponent;
+        }
+
+        @Override
+        protected NaturalNumber compute() {
+            NaturalNumber result = this.base.newInstance();
+            result.setFromInt(1);
+            int bits = Integer.SIZE - Integer.numberOfLeadingZeros(this.exponent);
+            int remaining = this.exponent;
+            int done = 0;
+            while (remaining > 0 && !this.isCancelled()) {
+                if (remaining % 2 == 1) {
+                    result.multiply(this.base);
+                }
+                remaining /= 2;
+                if (remaining > 0) {
+                    NaturalNumber factor = this.base.newInstance();
+                    factor.copyFrom(this.base);
+                    this.base.multiply(factor);
+                }
+                done++;
+                this.reportProgress(done, bits);
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * Computation of the {@code r}-th root of a number by interval halving,
+     * with progress measured in halving steps.
+     */
+    private final class RootComputation extends Computation {
+
+        /**
+         * The number whose root to compute.
+         */
+        private final NaturalNumber n;
+
+        /**
+         * The root.
+         */
+        private final int r;
+
+        /**
+         * Constructor.
+         *
+         * @param n
+         *            the number whose root to compute, which the computation
+         *            takes ownership of
+         * @param r
+         *            the root
+         */
+        RootComputation(NaturalNumber n, int r) {
+            super("root");
+            this.n = n;
+            this.r = r;
+        }
+
+        @Override
+        protected NaturalNumber compute() {
+            NaturalNumber lowEnough = this.n.newInstance();
+            NaturalNumber tooHigh = this.n.newInstance();
+            if (!this.n.isZero()) {
+                /*
+                 * With d digits, 10^(d-1) <= n < 10^d, so the root is in
+                 * [10^floor((d-1)/r), 10^ceil(d/r))
+                 */
+                int d = this.n.toString().length();
+                lowEnough.setFromInt(1);
+                for (int i = 0; i < (d - 1) / this.r; i++) {
+                    lowEnough.multiplyBy10(0);
+                }
+                tooHigh.setFromInt(1);
+                for (int i = 0; i < (d + this.r - 1) / this.r; i++) {
+                    tooHigh.multiplyBy10(0);
+                }
+            } else {
+                tooHigh.setFromInt(1);
+            }
+            NaturalNumber one = this.n.newInstance();
+            one.setFromInt(1);
+            NaturalNumber diff = this.n.newInstance();
+            diff.copyFrom(tooHigh);
+            diff.subtract(lowEnough);
+            /*
+             * Each halving step removes one bit of diff, and a decimal digit
+             * is log2(10) bits
+             */
+            long steps = Math.max(1,
+                    (long) Math.ceil(BITS_PER_DIGIT * diff.toString().length()));
+            long done = 0;
+            while (diff.compareTo(one) > 0 && !this.isCancelled()) {
+                NaturalNumberRoot.halveInterval(lowEnough, tooHigh, this.n,
+                        this.r);
+                diff.copyFrom(tooHigh);
+                diff.subtract(lowEnough);
+                done++;
+                this.reportProgress(Math.min(done, steps), steps);
+            }
+            this.reportProgress(steps, steps);
+            return lowEnough;
+        }
+
+    }
+
+    /**
+     * Returns a copy of {@code n}.
+     *
+     * @param n
+     *            the number to copy
+     * @return a copy of n
+     * @ensures copy = n
+     */
+    private static NaturalNumber copy(NaturalNumber n) {
+        NaturalNumber result = n.newInstance();
+        result.copyFrom(n);
+        return result;
+    }
+
+    /**
+     * Updates this.view to allow only operations that are legal given
+     * this.model.
      *
      * @param model
      *            the model
      * @param view
      *            the view
-     * @ensures [view has been updated to be consistent with model]
+     * @ensures [view allows exactly the operations that are legal given model]
      */
-    private static void updateViewToMatchModel(NNCalcModel model, NNCalcView view) {
+    private static void updateAllowedOperations(NNCalcModel model, NNCalcView view) {
 
         NaturalNumber top = model.top();
         NaturalNumber bottom = model.bottom();
@@ -48,8 +358,6 @@ public final class NNCalcController1 implements NNCalcController {
         boolean rootAllowed = bottom.compareTo(TWO) >= 0
                 && bottom.compareTo(INT_LIMIT) <= 0;
 
-        view.updateTopDisplay(top);
-        view.updateBottomDisplay(bottom);
         view.updateSubtractAllowed(subtractAllowed);
         view.updateDivideAllowed(divideAllowed);
         view.updatePowerAllowed(powerAllowed);
@@ -57,6 +365,24 @@ public final class NNCalcController1 implements NNCalcController {
 
     }
 
+    /**
+     * Updates this.view to display this.model, and to allow only operations
+     * that are legal given this.model.
+     *
+     * @param model
+     *            the model
+     * @param view
+     *            the view
+     * @ensures [view has been updated to be consistent with model]
+     */
+    private static void updateViewToMatchModel(NNCalcModel model, NNCalcView view) {
+
+        view.updateTopDisplay(model.top());
+        view.updateBottomDisplay(model.bottom());
+        updateAllowedOperations(model, view);
+
+    }
+
     /**
      * Constructor.
      *
@@ -66,8 +392,25 @@ public final class NNCalcController1 implements NNCalcController {
      *            view to connect to
      */
     public NNCalcController1(NNCalcModel model, NNCalcView view) {
+        this(model, view, true);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param model
+     *            model to connect to
+     * @param view
+     *            view to connect to
+     * @param background
+     *            whether power and root run on a background thread; if
+     *            false, they complete before the event methods return, which
+     *            is what a driver without an event dispatch thread needs
+     */
+    public NNCalcController1(NNCalcModel model, NNCalcView view, boolean background) {
         this.model = model;
         this.view = view;
+        this.background = background;
         updateViewToMatchModel(model, view);
     }
 
@@ -138,57 +481,220 @@ public final class NNCalcController1 implements NNCalcController {
     }
 
     @Override
-    public void processMultiplyEvent() {
+    public boolean processMultiplyEvent() {
 
         NaturalNumber top = this.model.top();
         NaturalNumber bottom = this.model.bottom();
-        bottom.multiply(top);
-        top.clear();
-        updateViewToMatchModel(this.model, this.view);
+        boolean applied = this.applyCachedResult("*");
+        if (!applied && this.approve(NNCalcCostModel.multiply(top, bottom))) {
+            NaturalNumber product = copy(bottom);
+            product.multiply(top);
+            RESULTS.put("*", top, bottom, product);
+            bottom.transferFrom(product);
+            top.clear();
+            updateViewToMatchModel(this.model, this.view);
+            applied = true;
+        }
+        return applied;
 
     }
 
     @Override
     public void processDivideEvent() {
 
+        if (!this.applyCachedResult("/")) {
+            NaturalNumber top = this.model.top();
+            NaturalNumber bottom = this.model.bottom();
+            NaturalNumber quotient = copy(top);
+            NaturalNumber remainder = quotient.divide(copy(bottom));
+            RESULTS.put("/", top, bottom, quotient, remainder);
+            bottom.transferFrom(quotient);
+            top.transferFrom(remainder);
+            updateViewToMatchModel(this.model, this.view);
+        }
+
+    }
+
+    /**
+     * Applies the cached result of {@code operation} on the current operands,
+     * if there is one: the bottom operand becomes the (first) result and the
+     * top operand the second result of divide, or 0.
+     *
+     * @param operation
+     *            name of the operation
+     * @return true iff a cached result was found and applied
+     * @updates this.model, this.view
+     * @ensures <pre>
+     * [if applyCachedResult, this.model holds the result of operation on
+     *  #this.model and this.view has been updated to match it]
+     * </pre>
+     */
+    private boolean applyCachedResult(String operation) {
         NaturalNumber top = this.model.top();
         NaturalNumber bottom = this.model.bottom();
-        NaturalNumber divisor = bottom.newInstance();
-        divisor.copyFrom(bottom);
-        NaturalNumber remainder = top.divide(divisor);
-        bottom.transferFrom(top);
-        top.transferFrom(remainder);
-        updateViewToMatchModel(this.model, this.view);
+        NaturalNumber[] results = RESULTS.get(operation, top, bottom);
+        if (results != null) {
+            bottom.transferFrom(results[0]);
+            if (results.length > 1) {
+                top.transferFrom(results[1]);
+            } else {
+                top.clear();
+            }
+            updateViewToMatchModel(this.model, this.view);
+        }
+        return results != null;
+    }
 
+    /**
+     * Checks the estimated cost of an operation against the configured
+     * limits, asking the user to confirm it through this.view if needed.
+     *
+     * @param estimate
+     *            the estimated cost of the operation
+     * @return true iff the operation may go ahead
+     * @ensures <pre>
+     * [if the operation exceeds the limits, this.view has reported it as
+     *  refused; if it needs confirmation, this.view has asked the user]
+     * </pre>
+     */
+    private boolean approve(NNCalcCostModel.Estimate estimate) {
+        boolean approved = true;
+        switch (estimate.verdict()) {
+            case REFUSE:
+                this.view.reportRefused(estimate.toString());
+                approved = false;
+                break;
+            case CONFIRM:
+                approved = this.view.confirmOperation(estimate.toString());
+                break;
+            default:
+                break;
+        }
+        return approved;
+    }
+
+    /**
+     * Starts {@code c} on a background thread, with the view showing its
+     * progress and allowing only cancellation until it completes.
+     *
+     * @param c
+     *            the computation to start
+     * @return true iff the computation has already completed and its result
+     *         been applied, as it has when it does not run in the background
+     * @requires [no computation is in progress]
+     */
+    private boolean startComputation(Computation c) {
+        assert this.computation == null : "Violation of: no computation in progress";
+
+        boolean applied = false;
+        this.computation = c;
+        this.view.updateProgress(0);
+        this.view.updateComputing(true);
+        if (this.background) {
+            c.addPropertyChangeListener(event -> {
+                if ("progress".equals(event.getPropertyName())) {
+                    this.view.updateProgress((Integer) event.getNewValue());
+                }
+            });
+            c.execute();
+        } else {
+            NaturalNumber result = null;
+            try {
+                result = c.compute();
+            } catch (RuntimeException | OutOfMemoryError e) {
+                this.reportFailure(e);
+            } finally {
+                this.finishComputation(result);
+            }
+            applied = result != null;
+        }
+        return applied;
+    }
+
+    /**
+     * Reports through this.view that the computation in progress failed; the
+     * operands are left as they were before it started.
+     *
+     * @param cause
+     *            what made the computation fail
+     */
+    private void reportFailure(Throwable cause) {
+        this.view.reportFailed("The computation failed: " + cause);
+    }
+
+    /**
+     * Ends the computation in progress, replacing the bottom operand with its
+     * result and clearing the top operand unless it was cancelled or failed,
+     * and caches the result; a result computed in the background is then
+     * reported to the view as applied.
+     *
+     * @param result
+     *            the result, or {@code null} if the computation was cancelled
+     *            or failed
+     * @updates this.model, this.view
+     * @requires [a computation is in progress]
+     * @ensures <pre>
+     * [if result /= null, this.model.top = 0 and this.model.bottom = result]  and
+     * [this.view has been updated to match this.model]
+     * </pre>
+     */
+    private void finishComputation(NaturalNumber result) {
+        if (result != null) {
+            RESULTS.put(this.computation.operation, this.computation.top,
+                    this.computation.bottom, result);
+            this.model.top().clear();
+            this.model.bottom().transferFrom(result);
+        }
+        this.computation = null;
+        this.view.updateComputing(false);
+        updateViewToMatchModel(this.model, this.view);
+        if (result != null && this.background) {
+            this.view.reportApplied();
+        }
     }
 
     @Override
-    public void processPowerEvent() {
+    public boolean processPowerEvent() {
 
         NaturalNumber top = this.model.top();
         NaturalNumber bottom = this.model.bottom();
         int exponent = bottom.toInt();
-        NaturalNumber base = top.newInstance();
-        base.copyFrom(top);
-        base.power(exponent);
-        top.clear();
-        bottom.transferFrom(base);
-        updateViewToMatchModel(this.model, this.view);
+        boolean applied = this.applyCachedResult("power");
+        if (!applied && this.approve(NNCalcCostModel.power(top, exponent))) {
+            NaturalNumber base = top.newInstance();
+            base.copyFrom(top);
+            applied = this.startComputation(new PowerComputation(base, exponent));
+        }
+        return applied;
 
     }
 
     @Override
-    public void processRootEvent() {
+    public boolean processRootEvent() {
 
         NaturalNumber top = this.model.top();
         NaturalNumber bottom = this.model.bottom();
         int root = bottom.toInt();
-        NaturalNumber value = top.newInstance();
-        value.copyFrom(top);
-        value.root(root);
-        top.clear();
-        bottom.transferFrom(value);
-        updateViewToMatchModel(this.model, this.view);
+        boolean applied = this.applyCachedResult("root");
+        if (!applied && this.approve(NNCalcCostModel.root(top, root))) {
+            NaturalNumber value = top.newInstance();
+            value.copyFrom(top);
+            applied = this.startComputation(new RootComputation(value, root));
+        }
+        return applied;
+
+    }
+
+    @Override
+    public void processCancelEvent() {
+
+        /*
+         * The view stays busy until the worker actually stops; see
+         * Computation
+         */
+        if (this.computation != null) {
+            this.computation.cancel(true);
+        }
 
     }
 
@@ -197,7 +703,11 @@ public final class NNCalcController1 implements NNCalcController {
 
         NaturalNumber bottom = this.model.bottom();
         bottom.multiplyBy10(digit);
-        updateViewToMatchModel(this.model, this.view);
+        /*
+         * Only the bottom operand changed, by one new low-order digit
+         */
+        this.view.appendBottomDigit(digit);
+        updateAllowedOperations(this.model, this.view);
 
     }
 
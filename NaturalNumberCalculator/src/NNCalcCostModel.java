@@ -0,0 +1,282 @@
+import components.naturalnumber.NaturalNumber;
+
+/**
+ * Rough cost model for the calculator's expensive operations, used by the
+ * controller to refuse, or ask for confirmation of, operations whose result
+ * size or running time would be excessive.
+ * <p>
+ * Result sizes are estimated from the operands' digit counts (and, for power,
+ * from the logarithm of the base), which {@code NaturalNumber3} reports
+ * without a decimal conversion; times are estimated from the cost of the
+ * multiplications involved, following the limb-by-limb and NTT paths of
+ * {@code NaturalNumberNTT}. The limits are read from system properties, so a
+ * shared deployment can tighten them without recompiling:
+ * {@code nncalc.confirmDigits}, {@code nncalc.maxDigits},
+ * {@code nncalc.confirmSeconds}, and {@code nncalc.maxSeconds}.
+ * </p>
+ *
+ * @author Sang Park
+ */
+public final class NNCalcCostModel {
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private NNCalcCostModel() {
+    }
+
+    /**
+     * Result size, in digits, above which the user must confirm.
+     */
+    private static final long CONFIRM_DIGITS = Long.getLong("nncalc.confirmDigits",
+            1_000_000L);
+
+    /**
+     * Result size, in digits, above which the operation is refused.
+     */
+    private static final long MAX_DIGITS = Long.getLong("nncalc.maxDigits",
+            20_000_000L);
+
+    /**
+     * Estimated time, in seconds, above which the user must confirm.
+     */
+    private static final long CONFIRM_SECONDS = Long.getLong("nncalc.confirmSeconds",
+            10L);
+
+    /**
+     * Estimated time, in seconds, above which the operation is refused.
+     */
+    private static final long MAX_SECONDS = Long.getLong("nncalc.maxSeconds", 600L);
+
+    /**
+     * Approximate cost of one limb product, in nanoseconds.
+     */
+    private static final double NANOS_PER_LIMB_PRODUCT = 1.0;
+
+    /**
+     * Approximate cost of one NTT butterfly, in nanoseconds; a product takes
+     * nine transforms (three per prime).
+     */
+    private static final double NANOS_PER_BUTTERFLY = 9 * 6.0;
+
+    /**
+     * Nanoseconds per second.
+     */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /**
+     * Number of leading digits used to approximate the logarithm of a number.
+     */
+    private static final int LOG_DIGITS = 15;
+
+    /**
+     * Decision on whether an operation may go ahead.
+     */
+    public enum Verdict {
+        /**
+         * Cheap enough to run without asking.
+         */
+        ALLOW,
+        /**
+         * Expensive enough that the user must confirm.
+         */
+        CONFIRM,
+        /**
+         * Too expensive to run at all.
+         */
+        REFUSE
+    }
+
+    /**
+     * Estimated cost of an operation.
+     */
+    public static final class Estimate {
+
+        /**
+         * Estimated number of digits of the result.
+         */
+        private final double digits;
+
+        /**
+         * Estimated running time, in seconds.
+         */
+        private final double seconds;
+
+        /**
+         * Constructor.
+         *
+         * @param digits
+         *            estimated number of digits of the result
+         * @param seconds
+         *            estimated running time, in seconds
+         */
+        private Estimate(double digits, double seconds) {
+            this.digits = digits;
+            this.seconds = seconds;
+        }
+
+        /**
+         * Reports whether the operation may go ahead under the configured
+         * limits.
+         *
+         * @return the verdict for this estimate
+         */
+        public Verdict verdict() {
+            Verdict result = Verdict.ALLOW;
+            if (this.digits > MAX_DIGITS || this.seconds > MAX_SECONDS) {
+                result = Verdict.REFUSE;
+            } else if (this.digits > CONFIRM_DIGITS
+                    || this.seconds > CONFIRM_SECONDS) {
+                result = Verdict.CONFIRM;
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "Estimated result size: %,.0f digits (limit %,d)%n"
+                            + "Estimated time: %,.1f seconds (limit %,d)",
+                    this.digits, MAX_DIGITS, this.seconds, MAX_SECONDS);
+        }
+
+    }
+
+    /**
+     * Returns the number of decimal digits of {@code n}: read off the
+     * representation of a {@code NaturalNumber3}, which is what the
+     * calculator uses, and converted to decimal only for other
+     * implementations.
+     *
+     * @param n
+     *            the number
+     * @return the number of digits of n
+     * @ensures digitCount = |TO_STRING(n)|
+     */
+    private static long digitCount(NaturalNumber n) {
+        long result;
+        if (n instanceof NaturalNumber3) {
+            result = ((NaturalNumber3) n).digitCount();
+        } else {
+            result = n.toString().length();
+        }
+        return result;
+    }
+
+    /**
+     * Returns an approximation of {@code log10(n)}, converting {@code n} to
+     * decimal only if it is not a {@code NaturalNumber3}.
+     *
+     * @param n
+     *            the number
+     * @return approximately log10(n)
+     * @requires n > 0
+     * @ensures log10 = [approximately log10(n)]
+     */
+    private static double log10(NaturalNumber n) {
+        double result;
+        if (n instanceof NaturalNumber3) {
+            result = ((NaturalNumber3) n).log10();
+        } else {
+            String s = n.toString();
+            int lead = Math.min(s.length(), LOG_DIGITS);
+            result = Math.log10(Double.parseDouble(s.substring(0, lead)))
+                    + (s.length() - lead);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the estimated time, in seconds, to multiply numbers of
+     * {@code a} and {@code b} digits.
+     *
+     * @param a
+     *            digits of one factor
+     * @param b
+     *            digits of the other factor
+     * @return the estimated time in seconds
+     * @requires a >= 0 and b >= 0
+     * @ensures multiplySeconds = [estimated time to multiply]
+     */
+    private static double multiplySeconds(double a, double b) {
+        double x = Math.ceil(a / NaturalNumberNTT.LIMB_DIGITS);
+        double y = Math.ceil(b / NaturalNumberNTT.LIMB_DIGITS);
+        double nanos;
+        if (Math.min(x, y) < NaturalNumberNTT.NTT_THRESHOLD) {
+            nanos = x * y * NANOS_PER_LIMB_PRODUCT;
+        } else {
+            double size = Math.pow(2, Math.ceil(Math.log(x + y) / Math.log(2)));
+            nanos = size / 2 * (Math.log(size) / Math.log(2)) * NANOS_PER_BUTTERFLY;
+        }
+        return nanos / NANOS_PER_SECOND;
+    }
+
+    /**
+     * Estimates the cost of {@code a * b}.
+     *
+     * @param a
+     *            one factor
+     * @param b
+     *            the other factor
+     * @return the estimated cost
+     */
+    public static Estimate multiply(NaturalNumber a, NaturalNumber b) {
+        double x = digitCount(a);
+        double y = digitCount(b);
+        return new Estimate(x + y, multiplySeconds(x, y));
+    }
+
+    /**
+     * Estimates the cost of {@code base ^ (p)} by square-and-multiply.
+     *
+     * @param base
+     *            the base
+     * @param p
+     *            the exponent
+     * @return the estimated cost
+     * @requires p >= 0
+     */
+    public static Estimate power(NaturalNumber base, int p) {
+        double digits = 1;
+        double seconds = 0;
+        if (!base.isZero() && p > 0) {
+            digits = Math.floor(p * log10(base)) + 1;
+            /*
+             * The squarings double in size up to about half the result, and
+             * the multiplications into the result are no bigger, so the total
+             * is dominated by roughly twice the last few squarings
+             */
+            double baseDigits = digitCount(base);
+            double size = digits / 2;
+            while (size >= baseDigits) {
+                seconds += 2 * multiplySeconds(size, size);
+                size /= 2;
+            }
+        }
+        return new Estimate(digits, seconds);
+    }
+
+    /**
+     * Estimates the cost of the {@code r}-th root of {@code n} by interval
+     * halving with early-exit power comparisons.
+     *
+     * @param n
+     *            the number whose root to compute
+     * @param r
+     *            the root
+     * @return the estimated cost
+     * @requires r >= 2
+     */
+    public static Estimate root(NaturalNumber n, int r) {
+        double d = digitCount(n);
+        double digits = Math.ceil(d / r);
+        /*
+         * About log2(10^(d/r)) halving steps, each comparing mid^r with n
+         * using up to r multiplications by a (d/r)-digit factor
+         */
+        double steps = digits * Math.log(10) / Math.log(2);
+        double seconds = steps * r * multiplySeconds(d, digits);
+        return new Estimate(digits, seconds);
+    }
+
+}
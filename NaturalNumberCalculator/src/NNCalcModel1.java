@@ -1,5 +1,4 @@
 import components.naturalnumber.NaturalNumber;
-import components.naturalnumber.NaturalNumber2;
 
 /**
  * Model class.
@@ -17,8 +16,8 @@ public final class NNCalcModel1 implements NNCalcModel {
      * No argument constructor.
      */
     public NNCalcModel1() {
-        this.top = new NaturalNumber2();
-        this.bottom = new NaturalNumber2();
+        this.top = new NaturalNumber3();
+        this.bottom = new NaturalNumber3();
     }
 
     @Override
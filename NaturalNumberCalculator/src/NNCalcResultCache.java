@@ -0,0 +1,204 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import components.naturalnumber.NaturalNumber;
+
+/**
+ * Least-recently-used cache of the results of expensive calculator operations,
+ * keyed on the operation and its two operands.
+ * <p>
+ * The cache is bounded by the total number of digits it holds, counting both
+ * the operands of each entry and its results, so a few huge powers cannot
+ * push out the heap. Keys and results are stored as copies, and copies are
+ * returned, so callers may modify the numbers they pass in or get back.
+ * </p>
+ *
+ * @author Sang Park
+ */
+public final class NNCalcResultCache {
+
+    /**
+     * Key of a cache entry: an operation and its operands.
+     */
+    private static final class Key {
+
+        /**
+         * The operation.
+         */
+        private final String operation;
+
+        /**
+         * The operands.
+         */
+        private final NaturalNumber top, bottom;
+
+        /**
+         * Hash code, computed once from the operation and operand digits.
+         */
+        private final int hash;
+
+        /**
+         * Constructor.
+         *
+         * @param operation
+         *            the operation
+         * @param top
+         *            the top operand, which the key takes ownership of
+         * @param bottom
+         *            the bottom operand, which the key takes ownership of
+         */
+        Key(String operation, NaturalNumber top, NaturalNumber bottom) {
+            this.operation = operation;
+            this.top = top;
+            this.bottom = bottom;
+            final int prime = 31;
+            this.hash = (operation.hashCode() * prime + top.toString().hashCode())
+                    * prime + bottom.toString().hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            boolean result = this == obj;
+            if (!result && obj instanceof Key) {
+                Key other = (Key) obj;
+                result = this.hash == other.hash
+                        && this.operation.equals(other.operation)
+                        && this.top.compareTo(other.top) == 0
+                        && this.bottom.compareTo(other.bottom) == 0;
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * Maximum total number of digits held.
+     */
+    private final long maxDigits;
+
+    /**
+     * Total number of digits currently held.
+     */
+    private long digits;
+
+    /**
+     * Entries, in least-recently-used order.
+     */
+    private final LinkedHashMap<Key, NaturalNumber[]> entries;
+
+    /**
+     * Constructor.
+     *
+     * @param maxDigits
+     *            maximum total number of digits to hold
+     */
+    public NNCalcResultCache(long maxDigits) {
+        this.maxDigits = maxDigits;
+        this.digits = 0;
+        final int initialCapacity = 16;
+        final float loadFactor = 0.75f;
+        this.entries = new LinkedHashMap<>(initialCapacity, loadFactor, true);
+    }
+
+    /**
+     * Returns the number of digits an entry holds.
+     *
+     * @param key
+     *            the key of the entry
+     * @param results
+     *            the results of the entry
+     * @return the total digits of the operands and results
+     */
+    private static long size(Key key, NaturalNumber[] results) {
+        long total = key.top.toString().length() + key.bottom.toString().length();
+        for (NaturalNumber n : results) {
+            total += n.toString().length();
+        }
+        return total;
+    }
+
+    /**
+     * Returns a copy of {@code n}.
+     *
+     * @param n
+     *            the number to copy
+     * @return a copy of n
+     */
+    private static NaturalNumber copy(NaturalNumber n) {
+        NaturalNumber result = n.newInstance();
+        result.copyFrom(n);
+        return result;
+    }
+
+    /**
+     * Returns copies of the cached results of {@code operation} on
+     * {@code top} and {@code bottom}, if there are any.
+     *
+     * @param operation
+     *            the operation
+     * @param top
+     *            the top operand
+     * @param bottom
+     *            the bottom operand
+     * @return copies of the cached results, or {@code null} if there are none
+     */
+    public synchronized NaturalNumber[] get(String operation, NaturalNumber top,
+            NaturalNumber bottom) {
+        NaturalNumber[] cached = this.entries.get(new Key(operation, top, bottom));
+        NaturalNumber[] result = null;
+        if (cached != null) {
+            result = new NaturalNumber[cached.length];
+            for (int i = 0; i < cached.length; i++) {
+                result[i] = copy(cached[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Caches copies of the results of {@code operation} on {@code top} and
+     * {@code bottom}, evicting least-recently-used entries as needed to stay
+     * within the digit limit. An entry that alone exceeds the limit is not
+     * cached.
+     *
+     * @param operation
+     *            the operation
+     * @param top
+     *            the top operand
+     * @param bottom
+     *            the bottom operand
+     * @param results
+     *            the results
+     */
+    public synchronized void put(String operation, NaturalNumber top,
+            NaturalNumber bottom, NaturalNumber... results) {
+        Key key = new Key(operation, copy(top), copy(bottom));
+        NaturalNumber[] stored = new NaturalNumber[results.length];
+        for (int i = 0; i < results.length; i++) {
+            stored[i] = copy(results[i]);
+        }
+        long entryDigits = size(key, stored);
+        if (entryDigits <= this.maxDigits) {
+            NaturalNumber[] previous = this.entries.remove(key);
+            if (previous != null) {
+                this.digits -= size(key, previous);
+            }
+            Iterator<Map.Entry<Key, NaturalNumber[]>> eldest = this.entries
+                    .entrySet().iterator();
+            while (this.digits + entryDigits > this.maxDigits) {
+                Map.Entry<Key, NaturalNumber[]> entry = eldest.next();
+                this.digits -= size(entry.getKey(), entry.getValue());
+                eldest.remove();
+            }
+            this.entries.put(key, stored);
+            this.digits += entryDigits;
+        }
+    }
+
+}
@@ -35,6 +35,17 @@ public interface NNCalcView extends ActionListener {
      */
     void updateBottomDisplay(NaturalNumber n);
 
+    /**
+     * Updates bottom operand display to show a new low-order digit appended to
+     * the value it displays, i.e., the same as {@code updateBottomDisplay} with
+     * the displayed value times 10 plus {@code digit}.
+     *
+     * @param digit
+     *            the low-order digit appended
+     * @requires 0 <= digit < 10
+     */
+    void appendBottomDigit(int digit);
+
     /**
      * Updates display of whether subtract operation is allowed.
      *
@@ -67,4 +78,55 @@ public interface NNCalcView extends ActionListener {
      */
     void updateRootAllowed(boolean allowed);
 
+    /**
+     * Updates display of whether a long computation is in progress; while it
+     * is, only the cancel operation is allowed.
+     *
+     * @param computing
+     *            true iff a computation is in progress
+     */
+    void updateComputing(boolean computing);
+
+    /**
+     * Updates display of the progress of the computation in progress.
+     *
+     * @param percent
+     *            estimated percentage of the computation done, in [0, 100]
+     */
+    void updateProgress(int percent);
+
+    /**
+     * Shows the estimated cost of an expensive operation and asks the user
+     * whether to go ahead with it.
+     *
+     * @param estimate
+     *            description of the estimated cost
+     * @return true iff the user confirms the operation
+     */
+    boolean confirmOperation(String estimate);
+
+    /**
+     * Shows the estimated cost of an operation that was refused because it
+     * exceeds the configured limits.
+     *
+     * @param estimate
+     *            description of the estimated cost
+     */
+    void reportRefused(String estimate);
+
+    /**
+     * Shows that a computation failed, for instance because it ran out of
+     * memory; the operands are left as they were before it started.
+     *
+     * @param message
+     *            description of the failure
+     */
+    void reportFailed(String message);
+
+    /**
+     * Reports that a power or root computation that continued in the
+     * background has completed and its result has been applied.
+     */
+    void reportApplied();
+
 }
@@ -4,7 +4,9 @@ import java.awt.event.ActionEvent;
 
 import javax.swing.JButton;
 import javax.swing.JFrame;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
 
@@ -45,11 +47,117 @@ public final class NNCalcView1 extends JFrame implements NNCalcView {
      */
     private final JTextArea tTop, tBottom;
 
+    /**
+     * Cached displays of the top and bottom operands.
+     */
+    private final OperandDisplay dTop, dBottom;
+
+    /**
+     * Display of one operand in a text area. The decimal digits of the value
+     * shown are cached, so an unchanged value is not converted again and a
+     * digit entry only appends one character; numbers longer than
+     * {@code DISPLAY_LIMIT} digits are shown as their leading and trailing
+     * {@code DISPLAY_LIMIT / 2} digits around a digit count, so the text area
+     * never lays out more than a screenful or two of text.
+     */
+    private static final class OperandDisplay {
+
+        /**
+         * The text area showing the operand.
+         */
+        private final JTextArea area;
+
+        /**
+         * The value shown, or {@code null} if nothing has been shown yet.
+         */
+        private NaturalNumber value;
+
+        /**
+         * The decimal digits of {@code value}.
+         */
+        private final StringBuilder digits;
+
+        /**
+         * Constructor.
+         *
+         * @param area
+         *            the text area showing the operand
+         */
+        OperandDisplay(JTextArea area) {
+            this.area = area;
+            this.value = null;
+            this.digits = new StringBuilder();
+        }
+
+        /**
+         * Renders the cached digits into the text area, eliding the middle of
+         * long numbers.
+         */
+        private void render() {
+            int length = this.digits.length();
+            if (length <= DISPLAY_LIMIT) {
+                this.area.setText(this.digits.toString());
+            } else {
+                int half = DISPLAY_LIMIT / 2;
+                this.area.setText(this.digits.substring(0, half) + "\n... ("
+                        + length + " digits) ...\n"
+                        + this.digits.substring(length - half));
+            }
+        }
+
+        /**
+         * Shows {@code n}, unless it is already shown.
+         *
+         * @param n
+         *            the value to show
+         */
+        void update(NaturalNumber n) {
+            if (this.value == null || n.compareTo(this.value) != 0) {
+                if (this.value == null) {
+                    this.value = n.newInstance();
+                }
+                this.value.copyFrom(n);
+                this.digits.setLength(0);
+                this.digits.append(n.toString());
+                this.render();
+            }
+        }
+
+        /**
+         * Shows the current value times 10 plus {@code digit}.
+         *
+         * @param digit
+         *            the low-order digit to append
+         * @requires [a value has been shown] and 0 <= digit < 10
+         */
+        void appendDigit(int digit) {
+            assert this.value != null : "Violation of: a value has been shown";
+
+            boolean wasZero = this.value.isZero();
+            this.value.multiplyBy10(digit);
+            if (wasZero) {
+                this.digits.setLength(0);
+            }
+            this.digits.append(digit);
+            if (wasZero || this.digits.length() > DISPLAY_LIMIT) {
+                this.render();
+            } else {
+                this.area.append(String.valueOf(digit));
+            }
+        }
+
+    }
+
     /**
      * Operator and related buttons.
      */
     private final JButton bClear, bSwap, bEnter, bAdd, bSubtract, bMultiply, bDivide,
-            bPower, bRoot;
+            bPower, bRoot, bCancel;
+
+    /**
+     * Progress of the power or root computation in progress.
+     */
+    private final JProgressBar pProgress;
 
     /**
      * Digit entry buttons.
@@ -61,8 +169,9 @@ public final class NNCalcView1 extends JFrame implements NNCalcView {
      */
     private static final int TEXT_AREA_HEIGHT = 5, TEXT_AREA_WIDTH = 20,
             DIGIT_BUTTONS = 10, MAIN_BUTTON_PANEL_GRID_ROWS = 4,
-            MAIN_BUTTON_PANEL_GRID_COLUMNS = 4, SIDE_BUTTON_PANEL_GRID_ROWS = 3,
-            SIDE_BUTTON_PANEL_GRID_COLUMNS = 1, CALC_GRID_ROWS = 3, CALC_GRID_COLUMNS = 1;
+            MAIN_BUTTON_PANEL_GRID_COLUMNS = 4, SIDE_BUTTON_PANEL_GRID_ROWS = 5,
+            SIDE_BUTTON_PANEL_GRID_COLUMNS = 1, CALC_GRID_ROWS = 3, CALC_GRID_COLUMNS = 1,
+            PROGRESS_MAX = 100, DISPLAY_LIMIT = 2000;
 
     /**
      * No argument constructor.
@@ -101,6 +210,8 @@ public final class NNCalcView1 extends JFrame implements NNCalcView {
 
         this.tTop.setEditable(false);
         this.tBottom.setEditable(false);
+        this.dTop = new OperandDisplay(this.tTop);
+        this.dBottom = new OperandDisplay(this.tBottom);
 
         // Create digit buttons
         this.bDigits = new JButton[DIGIT_BUTTONS];
@@ -118,6 +229,13 @@ public final class NNCalcView1 extends JFrame implements NNCalcView {
         this.bClear = new JButton("Clear");
         this.bSwap = new JButton("Swap");
         this.bEnter = new JButton("Enter");
+        this.bCancel = new JButton("Cancel");
+
+        /*
+         * Create progress bar for long computations
+         */
+        this.pProgress = new JProgressBar(0, PROGRESS_MAX);
+        this.pProgress.setStringPainted(true);
 
         /*
          * Initially, the following buttons should be disabled: divide (divisor
@@ -126,6 +244,7 @@ public final class NNCalcView1 extends JFrame implements NNCalcView {
          */
         this.bDivide.setEnabled(false);
         this.bRoot.setEnabled(false);
+        this.bCancel.setEnabled(false);
 
         /*
          * Create scroll panes for the text areas in case number is long enough
@@ -177,6 +296,8 @@ public final class NNCalcView1 extends JFrame implements NNCalcView {
         sideButtonPanel.add(this.bClear);
         sideButtonPanel.add(this.bSwap);
         sideButtonPanel.add(this.bEnter);
+        sideButtonPanel.add(this.bCancel);
+        sideButtonPanel.add(this.pProgress);
 
         /*
          * Create combined button panel organized using flow layout, which is
@@ -222,6 +343,7 @@ public final class NNCalcView1 extends JFrame implements NNCalcView {
         this.bRoot.addActionListener(this);
         this.bSubtract.addActionListener(this);
         this.bSwap.addActionListener(this);
+        this.bCancel.addActionListener(this);
 
         // Set up the main application window --------------------------------
 
@@ -245,14 +367,21 @@ public final class NNCalcView1 extends JFrame implements NNCalcView {
     @Override
     public void updateTopDisplay(NaturalNumber n) {
 
-        this.tTop.setText(n.toString());
+        this.dTop.update(n);
 
     }
 
     @Override
     public void updateBottomDisplay(NaturalNumber n) {
 
-        this.tBottom.setText(n.toString());
+        this.dBottom.update(n);
+
+    }
+
+    @Override
+    public void appendBottomDigit(int digit) {
+
+        this.dBottom.appendDigit(digit);
 
     }
 
@@ -284,6 +413,75 @@ public final class NNCalcView1 extends JFrame implements NNCalcView {
 
     }
 
+    @Override
+    public void updateComputing(boolean computing) {
+
+        /*
+         * Subtract, divide, power, and root are re-enabled by the controller,
+         * which knows whether they are allowed, once the computation is done
+         */
+        for (JButton b : this.bDigits) {
+            b.setEnabled(!computing);
+        }
+        this.bClear.setEnabled(!computing);
+        this.bSwap.setEnabled(!computing);
+        this.bEnter.setEnabled(!computing);
+        this.bAdd.setEnabled(!computing);
+        this.bMultiply.setEnabled(!computing);
+        if (computing) {
+            this.bSubtract.setEnabled(false);
+            this.bDivide.setEnabled(false);
+            this.bPower.setEnabled(false);
+            this.bRoot.setEnabled(false);
+            this.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        } else {
+            this.setCursor(Cursor.getDefaultCursor());
+        }
+        this.bCancel.setEnabled(computing);
+
+    }
+
+    @Override
+    public void updateProgress(int percent) {
+
+        this.pProgress.setValue(percent);
+
+    }
+
+    @Override
+    public boolean confirmOperation(String estimate) {
+
+        int answer = JOptionPane.showConfirmDialog(this,
+                estimate + "\n\nGo ahead with this computation?", "Large computation",
+                JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+        return answer == JOptionPane.YES_OPTION;
+
+    }
+
+    @Override
+    public void reportRefused(String estimate) {
+
+        JOptionPane.showMessageDialog(this,
+                estimate + "\n\nThis computation exceeds the configured limits.",
+                "Computation refused", JOptionPane.ERROR_MESSAGE);
+
+    }
+
+    @Override
+    public void reportApplied() {
+
+        this.currentState = State.SAW_OTHER_OP;
+
+    }
+
+    @Override
+    public void reportFailed(String message) {
+
+        JOptionPane.showMessageDialog(this, message, "Computation failed",
+                JOptionPane.ERROR_MESSAGE);
+
+    }
+
     @Override
     public void actionPerformed(ActionEvent event) {
         /*
@@ -317,17 +515,27 @@ public final class NNCalcView1 extends JFrame implements NNCalcView {
             this.controller.processSubtractEvent();
             this.currentState = State.SAW_OTHER_OP;
         } else if (source == this.bMultiply) {
-            this.controller.processMultiplyEvent();
-            this.currentState = State.SAW_OTHER_OP;
+            /*
+             * Multiply, power, and root may be refused or declined, leaving
+             * the operands (and so the state) as they were; power and root
+             * may also complete later, reported through reportApplied
+             */
+            if (this.controller.processMultiplyEvent()) {
+                this.currentState = State.SAW_OTHER_OP;
+            }
         } else if (source == this.bDivide) {
             this.controller.processDivideEvent();
             this.currentState = State.SAW_OTHER_OP;
         } else if (source == this.bPower) {
-            this.controller.processPowerEvent();
-            this.currentState = State.SAW_OTHER_OP;
+            if (this.controller.processPowerEvent()) {
+                this.currentState = State.SAW_OTHER_OP;
+            }
         } else if (source == this.bRoot) {
-            this.controller.processRootEvent();
-            this.currentState = State.SAW_OTHER_OP;
+            if (this.controller.processRootEvent()) {
+                this.currentState = State.SAW_OTHER_OP;
+            }
+        } else if (source == this.bCancel) {
+            this.controller.processCancelEvent();
         } else {
             for (int i = 0; i < DIGIT_BUTTONS; i++) {
                 if (source == this.bDigits[i]) {
@@ -350,9 +558,12 @@ public final class NNCalcView1 extends JFrame implements NNCalcView {
         }
         /*
          * Set the cursor back to normal (because we changed it at the beginning
-         * of the method body)
+         * of the method body), unless a computation continues in the
+         * background
          */
-        this.setCursor(Cursor.getDefaultCursor());
+        if (!this.bCancel.isEnabled()) {
+            this.setCursor(Cursor.getDefaultCursor());
+        }
     }
 
 }
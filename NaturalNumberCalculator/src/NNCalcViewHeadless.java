@@ -0,0 +1,177 @@
+import java.awt.event.ActionEvent;
+
+import components.naturalnumber.NaturalNumber;
+
+/**
+ * View class with no display, for driving the controller from a program.
+ * <p>
+ * Operand displays are ignored; the operations the controller currently
+ * allows are recorded so the driver can check them before sending an event,
+ * just as the buttons of {@code NNCalcView1} would be enabled or disabled.
+ * Expensive operations that would ask for confirmation go ahead, and refused
+ * or failed ones are recorded.
+ * </p>
+ *
+ * @author Sang Park
+ */
+public final class NNCalcViewHeadless implements NNCalcView {
+
+    /**
+     * Whether each operation is currently allowed.
+     */
+    private boolean subtractAllowed, divideAllowed, powerAllowed, rootAllowed;
+
+    /**
+     * Description of the last refused operation, or {@code null} if none was
+     * refused since the last call to {@code takeRefusal}.
+     */
+    private String refusal;
+
+    /**
+     * Description of the last failed computation, or {@code null} if none
+     * failed since the last call to {@code takeFailure}.
+     */
+    private String failure;
+
+    /**
+     * No argument constructor.
+     */
+    public NNCalcViewHeadless() {
+        this.refusal = null;
+        this.failure = null;
+    }
+
+    /**
+     * Reports whether subtract is allowed.
+     *
+     * @return true iff subtract is allowed
+     */
+    public boolean subtractAllowed() {
+        return this.subtractAllowed;
+    }
+
+    /**
+     * Reports whether divide is allowed.
+     *
+     * @return true iff divide is allowed
+     */
+    public boolean divideAllowed() {
+        return this.divideAllowed;
+    }
+
+    /**
+     * Reports whether power is allowed.
+     *
+     * @return true iff power is allowed
+     */
+    public boolean powerAllowed() {
+        return this.powerAllowed;
+    }
+
+    /**
+     * Reports whether root is allowed.
+     *
+     * @return true iff root is allowed
+     */
+    public boolean rootAllowed() {
+        return this.rootAllowed;
+    }
+
+    /**
+     * Returns and forgets the description of the last refused operation.
+     *
+     * @return the description, or {@code null} if no operation was refused
+     */
+    public String takeRefusal() {
+        String result = this.refusal;
+        this.refusal = null;
+        return result;
+    }
+
+    /**
+     * Returns and forgets the description of the last failed computation.
+     *
+     * @return the description, or {@code null} if no computation failed
+     */
+    public String takeFailure() {
+        String result = this.failure;
+        this.failure = null;
+        return result;
+    }
+
+    @Override
+    public void registerObserver(NNCalcController controller) {
+        // nothing to observe without a display
+    }
+
+    @Override
+    public void updateTopDisplay(NaturalNumber n) {
+        // no display
+    }
+
+    @Override
+    public void updateBottomDisplay(NaturalNumber n) {
+        // no display
+    }
+
+    @Override
+    public void appendBottomDigit(int digit) {
+        // no display
+    }
+
+    @Override
+    public void updateSubtractAllowed(boolean allowed) {
+        this.subtractAllowed = allowed;
+    }
+
+    @Override
+    public void updateDivideAllowed(boolean allowed) {
+        this.divideAllowed = allowed;
+    }
+
+    @Override
+    public void updatePowerAllowed(boolean allowed) {
+        this.powerAllowed = allowed;
+    }
+
+    @Override
+    public void updateRootAllowed(boolean allowed) {
+        this.rootAllowed = allowed;
+    }
+
+    @Override
+    public void updateComputing(boolean computing) {
+        // no display
+    }
+
+    @Override
+    public void updateProgress(int percent) {
+        // no display
+    }
+
+    @Override
+    public boolean confirmOperation(String estimate) {
+        return true;
+    }
+
+    @Override
+    public void reportRefused(String estimate) {
+        this.refusal = estimate;
+    }
+
+    @Override
+    public void reportFailed(String message) {
+        this.failure = message;
+    }
+
+    @Override
+    public void reportApplied() {
+        // no interaction state
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent event) {
+        // no widgets
+    }
+
+}
@@ -0,0 +1,563 @@
+import java.util.Arrays;
+
+import components.naturalnumber.NaturalNumber;
+import components.naturalnumber.NaturalNumberSecondary;
+
+/**
+ * {@code NaturalNumber} represented as a {@code long} while the value fits in
+ * one, and as an array of decimal digits once it does not.
+ * <p>
+ * Values move between the two representations automatically: a kernel or
+ * secondary operation whose result overflows a {@code long} (detected with the
+ * {@code Math.*Exact} methods) promotes this to digits, and
+ * {@code divideBy10} demotes it back as soon as the value fits again. The
+ * secondary operations are overridden with {@code long} fast paths when both
+ * operands are small. Otherwise {@code multiply} works on the digit arrays
+ * through {@code NaturalNumberNTT}, {@code power} squares and multiplies with
+ * it, and the remaining operations fall back to the digit-by-digit
+ * implementations inherited from {@code NaturalNumberSecondary}.
+ * </p>
+ *
+ * @convention <pre>
+ * [if $this.digits = null then $this.small >= 0]  and
+ * [if $this.digits /= null then
+ *    LONG_DIGITS <= $this.length <= |$this.digits|  and
+ *    $this.digits[0] /= 0  and
+ *    [every entry of $this.digits[0, $this.length) is in [0, RADIX)]  and
+ *    [the value of $this.digits[0, $this.length) does not fit in a long]]
+ * </pre>
+ * @correspondence <pre>
+ * this = [if $this.digits = null then $this.small, else the number whose
+ *         decimal digits, most significant first, are
+ *         $this.digits[0, $this.length)]
+ * </pre>
+ *
+ * @author Sang Park
+ */
+public class NaturalNumber3 extends NaturalNumberSecondary {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Number of decimal digits in {@code Long.MAX_VALUE}.
+     */
+    private static final int LONG_DIGITS = 19;
+
+    /**
+     * Number of leading digits used to approximate {@code log10}.
+     */
+    private static final int LOG_DIGITS = 15;
+
+    /**
+     * Value of this while it fits in a {@code long}.
+     */
+    private long small;
+
+    /**
+     * Decimal digits of this, most significant first, once the value no longer
+     * fits in a {@code long}; {@code null} otherwise.
+     */
+    private byte[] digits;
+
+    /**
+     * Number of entries of {@code digits} in use.
+     */
+    private int length;
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+        this.small = 0;
+        this.digits = null;
+        this.length = 0;
+    }
+
+    /**
+     * Switches this from the {@code long} representation to digits.
+     *
+     * @requires this.digits = null
+     * @ensures this.digits /= null  and  this = #this
+     */
+    private void promote() {
+        assert this.digits == null : "Violation of: this.digits = null";
+
+        this.digits = this.digitArray();
+        this.length = this.digits.length;
+        this.digits = Arrays.copyOf(this.digits, 2 * LONG_DIGITS);
+    }
+
+    /**
+     * Returns the decimal digits of this, most significant first, in an array
+     * whose first {@code digitCount()} entries are in use.
+     *
+     * @return the digits of this; aliases $this.digits if it is not null
+     * @requires this > 0
+     * @ensures [digitArray[0, digitCount()) are the digits of this]
+     */
+    private byte[] digitArray() {
+        byte[] result = this.digits;
+        if (result == null) {
+            String value = Long.toString(this.small);
+            result = new byte[value.length()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = (byte) (value.charAt(i) - '0');
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reports the number of decimal digits of this, without converting it to
+     * a string once it is held as digits.
+     *
+     * @return the number of digits of this
+     * @ensures digitCount = |TO_STRING(this)|
+     */
+    public final int digitCount() {
+        int result = this.length;
+        if (this.digits == null) {
+            result = Long.toString(this.small).length();
+        }
+        return result;
+    }
+
+    /**
+     * Returns an approximation of {@code log10(this)}, from at most
+     * {@code LOG_DIGITS} leading digits.
+     *
+     * @return approximately log10(this)
+     * @requires this > 0
+     * @ensures log10 = [approximately log10(this)]
+     */
+    public final double log10() {
+        assert !this.isZero() : "Violation of: this > 0";
+
+        double result;
+        if (this.digits == null) {
+            result = Math.log10(this.small);
+        } else {
+            int lead = Math.min(this.length, LOG_DIGITS);
+            long leading = 0;
+            for (int i = 0; i < lead; i++) {
+                leading = leading * RADIX + this.digits[i];
+            }
+            result = Math.log10(leading) + (this.length - lead);
+        }
+        return result;
+    }
+
+    /**
+     * Switches this back to the {@code long} representation if its value fits
+     * in one.
+     *
+     * @requires this.digits /= null
+     * @ensures this = #this
+     */
+    private void demoteIfSmall() {
+        assert this.digits != null : "Violation of: this.digits /= null";
+
+        if (this.length <= LONG_DIGITS) {
+            try {
+                long value = 0;
+                for (int i = 0; i < this.length; i++) {
+                    value = Math.addExact(Math.multiplyExact(value, RADIX),
+                            this.digits[i]);
+                }
+                this.createNewRep();
+                this.small = value;
+            } catch (ArithmeticException e) {
+                /*
+                 * Still too big for a long; keep the digits
+                 */
+            }
+        }
+    }
+
+    /**
+     * Reports whether both {@code this} and {@code n} currently use the
+     * {@code long} representation.
+     *
+     * @param n
+     *            the other operand
+     * @return true iff this and n are both small {@code NaturalNumber3}s
+     * @ensures bothSmall = [this and n are both NaturalNumber3 in the long
+     *          representation]
+     */
+    private boolean bothSmall(NaturalNumber n) {
+        return this.digits == null && n instanceof NaturalNumber3
+                && ((NaturalNumber3) n).digits == null;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public NaturalNumber3() {
+        this.createNewRep();
+    }
+
+    /**
+     * Constructor from {@code int}.
+     *
+     * @param i
+     *            {@code int} to initialize from
+     */
+    public NaturalNumber3(int i) {
+        assert i >= 0 : "Violation of: i >= 0";
+        this.createNewRep();
+        this.small = i;
+    }
+
+    /**
+     * Constructor from {@code long}.
+     *
+     * @param i
+     *            {@code long} to initialize from
+     */
+    public NaturalNumber3(long i) {
+        assert i >= 0 : "Violation of: i >= 0";
+        this.createNewRep();
+        this.small = i;
+    }
+
+    /**
+     * Constructor from {@code String}.
+     *
+     * @param s
+     *            {@code String} to initialize from
+     */
+    public NaturalNumber3(String s) {
+        assert s != null : "Violation of: s is not null";
+        assert s.matches("0|[1-9]\\d*") : ""
+                + "Violation of: there exists n: NATURAL (s = TO_STRING(n))";
+        this.createNewRep();
+        for (int i = 0; i < s.length(); i++) {
+            this.multiplyBy10(s.charAt(i) - '0');
+        }
+    }
+
+    /**
+     * Constructor from {@code NaturalNumber}.
+     *
+     * @param n
+     *            {@code NaturalNumber} to initialize from
+     */
+    public NaturalNumber3(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+        this.createNewRep();
+        this.copyFrom(n);
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @Override
+    public final NaturalNumber newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+    }
+
+    @Override
+    public final void transferFrom(NaturalNumber source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof NaturalNumber3 : ""
+                + "Violation of: source is of dynamic type NaturalNumber3";
+        NaturalNumber3 localSource = (NaturalNumber3) source;
+        this.small = localSource.small;
+        this.digits = localSource.digits;
+        this.length = localSource.length;
+        localSource.createNewRep();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void multiplyBy10(int k) {
+        assert 0 <= k : "Violation of: 0 <= k";
+        assert k < RADIX : "Violation of: k < 10";
+
+        if (this.digits == null) {
+            try {
+                this.small = Math.addExact(Math.multiplyExact(this.small, RADIX), k);
+                return;
+            } catch (ArithmeticException e) {
+                this.promote();
+            }
+        }
+        if (this.length == this.digits.length) {
+            this.digits = Arrays.copyOf(this.digits, 2 * this.length);
+        }
+        this.digits[this.length] = (byte) k;
+        this.length++;
+    }
+
+    @Override
+    public final int divideBy10() {
+        int k;
+        if (this.digits == null) {
+            k = (int) (this.small % RADIX);
+            this.small /= RADIX;
+        } else {
+            this.length--;
+            k = this.digits[this.length];
+            this.demoteIfSmall();
+        }
+        return k;
+    }
+
+    @Override
+    public final boolean isZero() {
+        return this.digits == null && this.small == 0;
+    }
+
+    /*
+     * Secondary methods with long fast paths ---------------------------------
+     */
+
+    @Override
+    public final void setFromInt(int i) {
+        assert i >= 0 : "Violation of: i >= 0";
+        this.createNewRep();
+        this.small = i;
+    }
+
+    @Override
+    public final boolean canConvertToInt() {
+        return this.digits == null && this.small <= Integer.MAX_VALUE;
+    }
+
+    @Override
+    public final int toInt() {
+        assert this.canConvertToInt() : ""
+                + "Violation of: this <= Integer.MAX_VALUE";
+        return (int) this.small;
+    }
+
+    @Override
+    public final void copyFrom(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+        if (n instanceof NaturalNumber3) {
+            NaturalNumber3 localN = (NaturalNumber3) n;
+            if (localN != this) {
+                this.small = localN.small;
+                this.length = localN.length;
+                this.digits = null;
+                if (localN.digits != null) {
+                    this.digits = Arrays.copyOf(localN.digits, localN.length);
+                }
+            }
+        } else {
+            super.copyFrom(n);
+        }
+    }
+
+    @Override
+    public final int compareTo(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+        int result;
+        if (n instanceof NaturalNumber3) {
+            NaturalNumber3 localN = (NaturalNumber3) n;
+            if (this.digits == null && localN.digits == null) {
+                result = Long.compare(this.small, localN.small);
+            } else if (this.digits == null || localN.digits == null) {
+                /*
+                 * Exactly one side is too big for a long
+                 */
+                if (this.digits == null) {
+                    result = -1;
+                } else {
+                    result = 1;
+                }
+            } else {
+                result = Integer.compare(this.length, localN.length);
+                int i = 0;
+                while (result == 0 && i < this.length) {
+                    result = Integer.compare(this.digits[i], localN.digits[i]);
+                    i++;
+                }
+            }
+        } else {
+            result = super.compareTo(n);
+        }
+        return result;
+    }
+
+    @Override
+    public final void increment() {
+        if (this.digits == null && this.small < Long.MAX_VALUE) {
+            this.small++;
+        } else {
+            super.increment();
+        }
+    }
+
+    @Override
+    public final void decrement() {
+        assert !this.isZero() : "Violation of: this > 0";
+        if (this.digits == null) {
+            this.small--;
+        } else {
+            super.decrement();
+        }
+    }
+
+    @Override
+    public final void add(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+        if (this.bothSmall(n)) {
+            try {
+                this.small = Math.addExact(this.small, ((NaturalNumber3) n).small);
+                return;
+            } catch (ArithmeticException e) {
+                /*
+                 * Overflow: fall through to the general case
+                 */
+            }
+        }
+        super.add(n);
+    }
+
+    @Override
+    public final void subtract(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+        assert this.compareTo(n) >= 0 : "Violation of: this >= n";
+        if (this.bothSmall(n)) {
+            this.small -= ((NaturalNumber3) n).small;
+        } else {
+            super.subtract(n);
+        }
+    }
+
+    @Override
+    public final void multiply(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+        if (this.bothSmall(n)) {
+            try {
+                this.small = Math.multiplyExact(this.small,
+                        ((NaturalNumber3) n).small);
+                return;
+            } catch (ArithmeticException e) {
+                /*
+                 * Overflow: fall through to the general case
+                 */
+            }
+        }
+        if (n instanceof NaturalNumber3) {
+            NaturalNumber3 localN = (NaturalNumber3) n;
+            if (this.isZero() || localN.isZero()) {
+                this.createNewRep();
+            } else {
+                /*
+                 * The product of two positive numbers, at least one of which
+                 * (or whose product) does not fit in a long, does not fit in
+                 * a long either
+                 */
+                byte[] product = NaturalNumberNTT.multiply(this.digitArray(),
+                        this.digitCount(), localN.digitArray(), localN.digitCount());
+                this.small = 0;
+                this.digits = product;
+                this.length = product.length;
+            }
+        } else {
+            super.multiply(n);
+        }
+    }
+
+    @Override
+    public final NaturalNumber divide(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+        assert !n.isZero() : "Violation of: n > 0";
+        NaturalNumber remainder;
+        if (this.bothSmall(n)) {
+            long divisor = ((NaturalNumber3) n).small;
+            remainder = new NaturalNumber3(this.small % divisor);
+            this.small /= divisor;
+        } else {
+            remainder = super.divide(n);
+        }
+        return remainder;
+    }
+
+    @Override
+    public final void power(int p) {
+        assert p >= 0 : "Violation of: p >= 0";
+        if (this.digits == null) {
+            try {
+                /*
+                 * Square-and-multiply in long arithmetic; this is left
+                 * unchanged unless the whole computation fits
+                 */
+                long base = this.small;
+                long result = 1;
+                int exponent = p;
+                while (exponent > 0) {
+                    if (exponent % 2 == 1) {
+                        result = Math.multiplyExact(result, base);
+                    }
+                    exponent /= 2;
+                    if (exponent > 0) {
+                        base = Math.multiplyExact(base, base);
+                    }
+                }
+                this.small = result;
+                return;
+            } catch (ArithmeticException e) {
+                /*
+                 * Overflow: fall through to the general case
+                 */
+            }
+        }
+        /*
+         * Square-and-multiply with the digit-array multiply, so the large
+         * squarings near the end go through the NTT
+         */
+        NaturalNumber3 base = new NaturalNumber3(this);
+        this.setFromInt(1);
+        int exponent = p;
+        while (exponent > 0) {
+            if (exponent % 2 == 1) {
+                this.multiply(base);
+            }
+            exponent /= 2;
+            if (exponent > 0) {
+                NaturalNumber3 factor = new NaturalNumber3(base);
+                base.multiply(factor);
+            }
+        }
+    }
+
+    @Override
+    public final String toString() {
+        String result;
+        if (this.digits == null) {
+            result = Long.toString(this.small);
+        } else {
+            char[] chars = new char[this.length];
+            for (int i = 0; i < this.length; i++) {
+                chars[i] = (char) ('0' + this.digits[i]);
+            }
+            result = new String(chars);
+        }
+        return result;
+    }
+
+}
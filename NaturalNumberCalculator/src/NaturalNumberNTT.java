@@ -0,0 +1,364 @@
+/**
+ * Multiplication of arbitrarily large natural numbers given as arrays of
+ * decimal digits, used by {@code NaturalNumber3} once its operands no longer
+ * fit in a {@code long}.
+ * <p>
+ * The digits are packed into limbs of {@code LIMB_DIGITS} decimal digits.
+ * Small operands are multiplied limb by limb; above {@code NTT_THRESHOLD}
+ * limbs the product is computed as a convolution with number-theoretic
+ * transforms modulo three NTT-friendly primes, and the exact coefficients are
+ * recovered from the three residues with the Chinese remainder theorem
+ * (Garner's algorithm). Everything is integer arithmetic, so there is no
+ * rounding error at any size.
+ * </p>
+ *
+ * @author Sang Park
+ */
+public final class NaturalNumberNTT {
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private NaturalNumberNTT() {
+    }
+
+    /**
+     * Number of decimal digits per limb; also used by {@code NNCalcCostModel}.
+     */
+    static final int LIMB_DIGITS = 6;
+
+    /**
+     * Limb base, {@code 10 ^ LIMB_DIGITS}.
+     */
+    private static final long LIMB_BASE = 1_000_000L;
+
+    /**
+     * Smaller operand size, in limbs, from which the NTT is used instead of
+     * limb-by-limb multiplication; also used by {@code NNCalcCostModel}.
+     */
+    static final int NTT_THRESHOLD = 64;
+
+    /**
+     * Largest transform length supported by all three primes ({@code 2^23}
+     * divides {@code P1 - 1}). It also keeps every convolution coefficient,
+     * at most {@code (MAX_NTT_LENGTH / 2) * (LIMB_BASE - 1) ^ 2}, below
+     * {@code Long.MAX_VALUE}.
+     */
+    private static final int MAX_NTT_LENGTH = 1 << 23;
+
+    /**
+     * The three NTT primes; 3 is a primitive root of each.
+     */
+    private static final long P1 = 998_244_353L, P2 = 167_772_161L,
+            P3 = 469_762_049L;
+
+    /**
+     * Primitive root shared by the three primes.
+     */
+    private static final long ROOT = 3;
+
+    /**
+     * Returns {@code base ^ (exponent) mod modulus}.
+     *
+     * @param base
+     *            the base
+     * @param exponent
+     *            the exponent
+     * @param modulus
+     *            the modulus
+     * @return base ^ (exponent) mod modulus
+     * @requires 0 <= base and 0 <= exponent and 1 < modulus < 2^31
+     * @ensures powerMod = base ^ (exponent) mod modulus
+     */
+    private static long powerMod(long base, long exponent, long modulus) {
+        long result = 1;
+        long b = base % modulus;
+        long e = exponent;
+        while (e > 0) {
+            if ((e & 1) == 1) {
+                result = result * b % modulus;
+            }
+            b = b * b % modulus;
+            e >>= 1;
+        }
+        return result;
+    }
+
+    /**
+     * Transforms {@code a} in place with the number-theoretic transform modulo
+     * {@code modulus}, or with its inverse.
+     *
+     * @param a
+     *            the values to transform
+     * @param invert
+     *            whether to apply the inverse transform
+     * @param modulus
+     *            one of the NTT primes
+     * @updates a
+     * @requires [|a| is a power of 2 dividing modulus - 1]  and
+     *           [entries of a are in [0, modulus)]
+     * @ensures a = [forward or inverse NTT of #a modulo modulus]
+     */
+    private static void transform(long[] a, boolean invert, long modulus) {
+        int n = a.length;
+        /*
+         * Bit-reversal permutation
+         */
+        for (int i = 1, j = 0; i < n; i++) {
+            int bit = n >> 1;
+            while ((j & bit) != 0) {
+                j ^= bit;
+                bit >>= 1;
+            }
+            j ^= bit;
+            if (i < j) {
+                long temp = a[i];
+                a[i] = a[j];
+                a[j] = temp;
+            }
+        }
+        /*
+         * Iterative butterflies
+         */
+        for (int len = 2; len <= n; len <<= 1) {
+            long w = powerMod(ROOT, (modulus - 1) / len, modulus);
+            if (invert) {
+                w = powerMod(w, modulus - 2, modulus);
+            }
+            int half = len >> 1;
+            for (int i = 0; i < n; i += len) {
+                long wk = 1;
+                for (int k = 0; k < half; k++) {
+                    long u = a[i + k];
+                    long v = a[i + k + half] * wk % modulus;
+                    long sum = u + v;
+                    if (sum >= modulus) {
+                        sum -= modulus;
+                    }
+                    long difference = u - v;
+                    if (difference < 0) {
+                        difference += modulus;
+                    }
+                    a[i + k] = sum;
+                    a[i + k + half] = difference;
+                    wk = wk * w % modulus;
+                }
+            }
+        }
+        if (invert) {
+            long nInverse = powerMod(n, modulus - 2, modulus);
+            for (int i = 0; i < n; i++) {
+                a[i] = a[i] * nInverse % modulus;
+            }
+        }
+    }
+
+    /**
+     * Returns the cyclic convolution of {@code a} and {@code b} modulo
+     * {@code modulus}, computed with transforms of length {@code size}.
+     *
+     * @param a
+     *            limbs of one factor, least significant first
+     * @param b
+     *            limbs of the other factor, least significant first
+     * @param size
+     *            the transform length
+     * @param modulus
+     *            one of the NTT primes
+     * @return the convolution residues
+     * @requires [size is a power of 2 dividing modulus - 1]  and
+     *           |a| + |b| <= size
+     * @ensures [convolve contains the coefficients of a * b mod modulus]
+     */
+    private static long[] convolve(long[] a, long[] b, int size, long modulus) {
+        long[] fa = new long[size];
+        long[] fb = new long[size];
+        for (int i = 0; i < a.length; i++) {
+            fa[i] = a[i] % modulus;
+        }
+        for (int i = 0; i < b.length; i++) {
+            fb[i] = b[i] % modulus;
+        }
+        transform(fa, false, modulus);
+        transform(fb, false, modulus);
+        for (int i = 0; i < size; i++) {
+            fa[i] = fa[i] * fb[i] % modulus;
+        }
+        transform(fa, true, modulus);
+        return fa;
+    }
+
+    /**
+     * Returns the coefficients of the product of {@code a} and {@code b},
+     * computed with three NTTs and recombined with the Chinese remainder
+     * theorem.
+     *
+     * @param a
+     *            limbs of one factor, least significant first
+     * @param b
+     *            limbs of the other factor, least significant first
+     * @param size
+     *            the transform length
+     * @return the exact convolution coefficients (not carried)
+     * @requires [size is a power of 2]  and  |a| + |b| <= size <= MAX_NTT_LENGTH
+     * @ensures [nttProduct contains the coefficients of a * b]
+     */
+    private static long[] nttProduct(long[] a, long[] b, int size) {
+        long[] r1 = convolve(a, b, size, P1);
+        long[] r2 = convolve(a, b, size, P2);
+        long[] r3 = convolve(a, b, size, P3);
+        long p1InverseModP2 = powerMod(P1, P2 - 2, P2);
+        long p1p2ModP3 = P1 % P3 * (P2 % P3) % P3;
+        long p1p2InverseModP3 = powerMod(p1p2ModP3, P3 - 2, P3);
+        long[] coefficients = new long[size];
+        for (int i = 0; i < size; i++) {
+            /*
+             * Garner: x = r1 + P1 * t1 + P1 * P2 * t2; the true coefficient is
+             * below Long.MAX_VALUE, so the final sum does not overflow
+             */
+            long t1 = (r2[i] - r1[i] % P2 + P2) % P2 * p1InverseModP2 % P2;
+            long x12ModP3 = (r1[i] + P1 % P3 * t1) % P3;
+            long t2 = (r3[i] - x12ModP3 + P3) % P3 * p1p2InverseModP3 % P3;
+            coefficients[i] = r1[i] + P1 * t1 + P1 * P2 * t2;
+        }
+        return coefficients;
+    }
+
+    /**
+     * Returns the coefficients of the product of {@code a} and {@code b},
+     * computed limb by limb.
+     *
+     * @param a
+     *            limbs of one factor, least significant first
+     * @param b
+     *            limbs of the other factor, least significant first
+     * @return the convolution coefficients, with carries partially propagated
+     * @ensures [value of schoolbookProduct = a * b]
+     */
+    private static long[] schoolbookProduct(long[] a, long[] b) {
+        long[] coefficients = new long[a.length + b.length];
+        for (int i = 0; i < a.length; i++) {
+            long carry = 0;
+            for (int j = 0; j < b.length; j++) {
+                long t = coefficients[i + j] + a[i] * b[j] + carry;
+                coefficients[i + j] = t % LIMB_BASE;
+                carry = t / LIMB_BASE;
+            }
+            coefficients[i + b.length] += carry;
+        }
+        return coefficients;
+    }
+
+    /**
+     * Packs decimal digits, most significant first, into limbs, least
+     * significant first.
+     *
+     * @param digits
+     *            the decimal digits
+     * @param length
+     *            number of digits in use
+     * @return the limbs
+     * @requires 0 < length <= |digits|
+     * @ensures [toLimbs has the same value as digits[0, length)]
+     */
+    private static long[] toLimbs(byte[] digits, int length) {
+        long[] limbs = new long[(length + LIMB_DIGITS - 1) / LIMB_DIGITS];
+        int end = length;
+        for (int i = 0; i < limbs.length; i++) {
+            int start = Math.max(0, end - LIMB_DIGITS);
+            long limb = 0;
+            for (int k = start; k < end; k++) {
+                limb = limb * NaturalNumber3.RADIX + digits[k];
+            }
+            limbs[i] = limb;
+            end = start;
+        }
+        return limbs;
+    }
+
+    /**
+     * Propagates carries through {@code coefficients} and unpacks the result
+     * into decimal digits, most significant first, without leading zeros.
+     *
+     * @param coefficients
+     *            limb coefficients, least significant first
+     * @return the decimal digits of the value of {@code coefficients}
+     * @updates coefficients
+     * @requires [value of coefficients > 0]
+     * @ensures [toDigits has the value of #coefficients, with no leading 0]
+     */
+    private static byte[] toDigits(long[] coefficients) {
+        long carry = 0;
+        for (int i = 0; i < coefficients.length; i++) {
+            long t = coefficients[i] + carry;
+            coefficients[i] = t % LIMB_BASE;
+            carry = t / LIMB_BASE;
+        }
+        assert carry == 0 : "Violation of: product fits in its coefficients";
+        int top = coefficients.length - 1;
+        while (coefficients[top] == 0) {
+            top--;
+        }
+        String lead = Long.toString(coefficients[top]);
+        byte[] digits = new byte[lead.length() + top * LIMB_DIGITS];
+        int k = 0;
+        for (int i = 0; i < lead.length(); i++) {
+            digits[k] = (byte) (lead.charAt(i) - '0');
+            k++;
+        }
+        for (int i = top - 1; i >= 0; i--) {
+            long limb = coefficients[i];
+            for (int j = LIMB_DIGITS - 1; j >= 0; j--) {
+                digits[k + j] = (byte) (limb % NaturalNumber3.RADIX);
+                limb /= NaturalNumber3.RADIX;
+            }
+            k += LIMB_DIGITS;
+        }
+        return digits;
+    }
+
+    /**
+     * Returns the decimal digits of the product of two positive numbers given
+     * by their decimal digits, most significant first.
+     *
+     * @param a
+     *            digits of one factor
+     * @param aLength
+     *            number of digits of {@code a} in use
+     * @param b
+     *            digits of the other factor
+     * @param bLength
+     *            number of digits of {@code b} in use
+     * @return the digits of the product, most significant first, with no
+     *         leading zeros
+     * @requires <pre>
+     * 0 < aLength <= |a|  and  0 < bLength <= |b|  and
+     * a[0] /= 0  and  b[0] /= 0
+     * </pre>
+     * @ensures [multiply contains the digits of a[0, aLength) * b[0, bLength)]
+     */
+    public static byte[] multiply(byte[] a, int aLength, byte[] b, int bLength) {
+        assert a != null : "Violation of: a is not null";
+        assert b != null : "Violation of: b is not null";
+        assert 0 < aLength && aLength <= a.length : ""
+                + "Violation of: 0 < aLength <= |a|";
+        assert 0 < bLength && bLength <= b.length : ""
+                + "Violation of: 0 < bLength <= |b|";
+
+        long[] x = toLimbs(a, aLength);
+        long[] y = toLimbs(b, bLength);
+        int size = 1;
+        while (size < x.length + y.length) {
+            size <<= 1;
+        }
+        long[] coefficients;
+        if (Math.min(x.length, y.length) >= NTT_THRESHOLD
+                && size <= MAX_NTT_LENGTH) {
+            coefficients = nttProduct(x, y, size);
+        } else {
+            coefficients = schoolbookProduct(x, y);
+        }
+        return toDigits(coefficients);
+    }
+
+}
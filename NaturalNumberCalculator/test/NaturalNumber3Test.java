@@ -0,0 +1,312 @@
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.Test;
+
+import components.naturalnumber.NaturalNumber;
+
+/**
+ * Differential tests of {@code NaturalNumber3} against
+ * {@code java.math.BigInteger}, with operands chosen around
+ * {@code Long.MAX_VALUE} so that results cross between the {@code long} and
+ * the digit-array representations in both directions.
+ *
+ * @author Sang Park
+ *
+ */
+public class NaturalNumber3Test {
+
+    /**
+     * Number of random operand pairs tried by each randomized test.
+     */
+    private static final int TRIALS = 500;
+
+    /**
+     * Seed for the randomized tests, fixed so that a failure can be
+     * reproduced.
+     */
+    private static final long SEED = 20261019L;
+
+    /**
+     * Maximum number of digits in a random operand.
+     */
+    private static final int MAX_DIGITS = 45;
+
+    /**
+     * Maximum exponent used for random power tests.
+     */
+    private static final int MAX_EXPONENT = 40;
+
+    /**
+     * Tolerance for {@code log10}.
+     */
+    private static final double LOG_TOLERANCE = 1e-9;
+
+    /**
+     * {@code Long.MAX_VALUE} as a {@code BigInteger}.
+     */
+    private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+
+    /**
+     * {@code Integer.MAX_VALUE} as a {@code BigInteger}.
+     */
+    private static final BigInteger INT_MAX = BigInteger
+            .valueOf(Integer.MAX_VALUE);
+
+    /**
+     * Returns a {@code NaturalNumber3} with the value of {@code x}.
+     *
+     * @param x
+     *            the value
+     * @return the new number
+     * @requires x >= 0
+     * @ensures nn = x
+     */
+    private static NaturalNumber3 nn(BigInteger x) {
+        return new NaturalNumber3(x.toString());
+    }
+
+    /**
+     * Returns a random natural number. Most have close to as many digits as
+     * {@code Long.MAX_VALUE}, and some are made only of 9s, are a power of
+     * ten, or are within a few units of {@code Long.MAX_VALUE}, so that
+     * results often cross the {@code long} boundary.
+     *
+     * @param random
+     *            the source of randomness
+     * @return the random number
+     * @ensures 0 <= randomOperand < 10 ^ (MAX_DIGITS)
+     */
+    private static BigInteger randomOperand(Random random) {
+        final int kinds = 5;
+        final int nearDigits = 4;
+        final int around = 19;
+        int kind = random.nextInt(kinds);
+        int digits;
+        if (random.nextBoolean()) {
+            digits = around - nearDigits + random.nextInt(2 * nearDigits + 1);
+        } else {
+            digits = 1 + random.nextInt(MAX_DIGITS);
+        }
+        BigInteger result;
+        if (kind == 0) {
+            result = BigInteger.TEN.pow(digits).subtract(BigInteger.ONE);
+        } else if (kind == 1) {
+            result = BigInteger.TEN.pow(digits - 1);
+        } else if (kind == 2) {
+            result = LONG_MAX.add(BigInteger.valueOf(random.nextInt(kinds) - 2));
+        } else {
+            StringBuilder s = new StringBuilder();
+            for (int i = 0; i < digits; i++) {
+                s.append(random.nextInt(NaturalNumber.RADIX));
+            }
+            result = new BigInteger(s.toString());
+        }
+        return result;
+    }
+
+    /**
+     * Returns {@code log10(x)}, computed from the leading digits of {@code x}.
+     *
+     * @param x
+     *            the number
+     * @return approximately log10(x)
+     * @requires x > 0
+     * @ensures log10 = [approximately log10(x)]
+     */
+    private static double log10(BigInteger x) {
+        final int lead = 17;
+        String digits = x.toString();
+        int used = Math.min(lead, digits.length());
+        return Math.log10(Double.parseDouble(digits.substring(0, used)))
+                + (digits.length() - used);
+    }
+
+    /**
+     * Asserts that {@code n} has the value {@code expected}, and that it
+     * behaves like a freshly constructed {@code NaturalNumber3} of that value:
+     * it compares equal to one, and converts to {@code int} exactly when the
+     * value fits. A number left in the digit representation although its
+     * value fits in a {@code long} fails the last two checks.
+     *
+     * @param message
+     *            description of the computation
+     * @param expected
+     *            the expected value
+     * @param n
+     *            the computed value
+     */
+    private static void assertValue(String message, BigInteger expected,
+            NaturalNumber3 n) {
+        assertEquals(message, expected.toString(), n.toString());
+        assertEquals(message, expected.toString().length(), n.digitCount());
+        assertEquals(message, 0, n.compareTo(nn(expected)));
+        assertEquals(message, 0, nn(expected).compareTo(n));
+        assertEquals(message, expected.compareTo(INT_MAX) <= 0,
+                n.canConvertToInt());
+    }
+
+    /*
+     * Tests of the kernel methods and the representation changes
+     */
+
+    @Test
+    public void testMultiplyBy10AndDivideBy10AcrossLongBoundary() {
+        String digits = "98765432109876543210987654321";
+        NaturalNumber3 n = new NaturalNumber3();
+        BigInteger expected = BigInteger.ZERO;
+        for (int i = 0; i < digits.length(); i++) {
+            int k = digits.charAt(i) - '0';
+            n.multiplyBy10(k);
+            expected = expected.multiply(BigInteger.TEN)
+                    .add(BigInteger.valueOf(k));
+            assertValue("multiplyBy10 #" + i, expected, n);
+        }
+        for (int i = digits.length() - 1; i >= 0; i--) {
+            int k = n.divideBy10();
+            assertEquals(digits.charAt(i) - '0', k);
+            expected = expected.divide(BigInteger.TEN);
+            assertValue("divideBy10 #" + i, expected, n);
+        }
+    }
+
+    @Test
+    public void testIncrementDecrementAtLongMax() {
+        NaturalNumber3 n = new NaturalNumber3(Long.MAX_VALUE);
+        n.increment();
+        assertValue("Long.MAX_VALUE + 1", LONG_MAX.add(BigInteger.ONE), n);
+        n.decrement();
+        assertValue("Long.MAX_VALUE + 1 - 1", LONG_MAX, n);
+    }
+
+    @Test
+    public void testSubtractBackIntoLong() {
+        BigInteger big = BigInteger.TEN.pow(30).add(BigInteger.valueOf(7));
+        NaturalNumber3 n = nn(big);
+        n.subtract(nn(BigInteger.TEN.pow(30)));
+        assertValue("10^30 + 7 - 10^30", BigInteger.valueOf(7), n);
+    }
+
+    @Test
+    public void testCopyFromAndTransferFrom() {
+        BigInteger big = LONG_MAX.multiply(LONG_MAX);
+        NaturalNumber3 source = nn(big);
+        NaturalNumber3 copy = new NaturalNumber3(1);
+        copy.copyFrom(source);
+        copy.increment();
+        assertValue("copy + 1", big.add(BigInteger.ONE), copy);
+        assertValue("source after copy", big, source);
+        NaturalNumber3 target = new NaturalNumber3(5);
+        target.transferFrom(source);
+        assertValue("transferred", big, target);
+        assertValue("source after transfer", BigInteger.ZERO, source);
+    }
+
+    /*
+     * Randomized tests of the secondary methods
+     */
+
+    @Test
+    public void testAddRandomAgainstBigInteger() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < TRIALS; i++) {
+            BigInteger x = randomOperand(random);
+            BigInteger y = randomOperand(random);
+            NaturalNumber3 n1 = nn(x);
+            NaturalNumber3 n2 = nn(y);
+            n1.add(n2);
+            assertValue(x + " + " + y, x.add(y), n1);
+            assertValue(x + " + " + y + " (argument)", y, n2);
+        }
+    }
+
+    @Test
+    public void testSubtractRandomAgainstBigInteger() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < TRIALS; i++) {
+            BigInteger x = randomOperand(random);
+            BigInteger y = randomOperand(random);
+            BigInteger big = x.max(y);
+            BigInteger small = x.min(y);
+            NaturalNumber3 n1 = nn(big);
+            NaturalNumber3 n2 = nn(small);
+            n1.subtract(n2);
+            assertValue(big + " - " + small, big.subtract(small), n1);
+            assertValue(big + " - " + small + " (argument)", small, n2);
+        }
+    }
+
+    @Test
+    public void testMultiplyRandomAgainstBigInteger() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < TRIALS; i++) {
+            BigInteger x = randomOperand(random);
+            BigInteger y = randomOperand(random);
+            NaturalNumber3 n1 = nn(x);
+            NaturalNumber3 n2 = nn(y);
+            n1.multiply(n2);
+            assertValue(x + " * " + y, x.multiply(y), n1);
+            assertValue(x + " * " + y + " (argument)", y, n2);
+        }
+    }
+
+    @Test
+    public void testDivideRandomAgainstBigInteger() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < TRIALS; i++) {
+            BigInteger x = randomOperand(random);
+            BigInteger y = randomOperand(random).max(BigInteger.ONE);
+            NaturalNumber3 n1 = nn(x);
+            NaturalNumber3 n2 = nn(y);
+            NaturalNumber remainder = n1.divide(n2);
+            BigInteger[] expected = x.divideAndRemainder(y);
+            assertValue(x + " / " + y, expected[0], n1);
+            assertEquals(x + " % " + y, expected[1].toString(),
+                    remainder.toString());
+        }
+    }
+
+    @Test
+    public void testCompareToRandomAgainstBigInteger() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < TRIALS; i++) {
+            BigInteger x = randomOperand(random);
+            BigInteger y = randomOperand(random);
+            assertEquals(x + " vs " + y, Integer.signum(x.compareTo(y)),
+                    Integer.signum(nn(x).compareTo(nn(y))));
+        }
+    }
+
+    @Test
+    public void testPowerRandomAgainstBigInteger() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < TRIALS; i++) {
+            BigInteger x = randomOperand(random);
+            if (random.nextBoolean()) {
+                /*
+                 * Small bases, whose powers start in the long representation
+                 * and overflow partway through
+                 */
+                x = BigInteger.valueOf(random.nextInt(Integer.MAX_VALUE));
+            }
+            int p = random.nextInt(MAX_EXPONENT + 1);
+            NaturalNumber3 n = nn(x);
+            n.power(p);
+            assertValue(x + " ^ " + p, x.pow(p), n);
+        }
+    }
+
+    @Test
+    public void testDigitCountAndLog10RandomAgainstBigInteger() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < TRIALS; i++) {
+            BigInteger x = randomOperand(random).max(BigInteger.ONE);
+            NaturalNumber3 n = nn(x);
+            assertEquals(x.toString(), x.toString().length(), n.digitCount());
+            assertEquals(x.toString(), log10(x), n.log10(), LOG_TOLERANCE);
+        }
+    }
+
+}
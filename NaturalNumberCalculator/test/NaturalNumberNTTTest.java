@@ -0,0 +1,200 @@
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@code NaturalNumberNTT.multiply} against
+ * {@code BigInteger.multiply}, around the size where it switches from
+ * limb-by-limb multiplication to the three-prime NTT.
+ *
+ * @author Sang Park
+ *
+ */
+public class NaturalNumberNTTTest {
+
+    /**
+     * Seed for the random operands, fixed so that a failure can be
+     * reproduced.
+     */
+    private static final long SEED = 20261019L;
+
+    /**
+     * Number of unused entries left after the digits of each operand, since
+     * {@code NaturalNumber3} passes arrays with spare capacity.
+     */
+    private static final int SPARE = 7;
+
+    /**
+     * Returns {@code 10 ^ (digits) - 1}, the number made of {@code digits}
+     * 9s.
+     *
+     * @param digits
+     *            the number of digits
+     * @return the number of all 9s
+     * @requires digits > 0
+     * @ensures nines = 10 ^ (digits) - 1
+     */
+    private static BigInteger nines(int digits) {
+        return BigInteger.TEN.pow(digits).subtract(BigInteger.ONE);
+    }
+
+    /**
+     * Returns a random number with exactly {@code digits} digits.
+     *
+     * @param random
+     *            the source of randomness
+     * @param digits
+     *            the number of digits
+     * @return the random number
+     * @requires digits > 0
+     * @ensures 10 ^ (digits - 1) <= randomNumber < 10 ^ (digits)
+     */
+    private static BigInteger randomNumber(Random random, int digits) {
+        final int radix = 10;
+        StringBuilder s = new StringBuilder();
+        s.append(1 + random.nextInt(radix - 1));
+        for (int i = 1; i < digits; i++) {
+            s.append(random.nextInt(radix));
+        }
+        return new BigInteger(s.toString());
+    }
+
+    /**
+     * Returns the decimal digits of {@code x}, most significant first, in an
+     * array with {@code SPARE} unused entries at the end.
+     *
+     * @param x
+     *            the number
+     * @return the digits of x
+     * @requires x > 0
+     * @ensures [toDigits[0, |x as a decimal string|) are the digits of x]
+     */
+    private static byte[] toDigits(BigInteger x) {
+        String s = x.toString();
+        byte[] digits = new byte[s.length() + SPARE];
+        for (int i = 0; i < s.length(); i++) {
+            digits[i] = (byte) (s.charAt(i) - '0');
+        }
+        return digits;
+    }
+
+    /**
+     * Asserts that {@code NaturalNumberNTT.multiply} computes {@code x * y}.
+     *
+     * @param x
+     *            one factor
+     * @param y
+     *            the other factor
+     * @requires x > 0 and y > 0
+     */
+    private static void assertProduct(BigInteger x, BigInteger y) {
+        int xLength = x.toString().length();
+        int yLength = y.toString().length();
+        byte[] product = NaturalNumberNTT.multiply(toDigits(x), xLength,
+                toDigits(y), yLength);
+        StringBuilder actual = new StringBuilder();
+        for (byte digit : product) {
+            actual.append(digit);
+        }
+        assertEquals(xLength + " digits * " + yLength + " digits",
+                x.multiply(y).toString(), actual.toString());
+    }
+
+    /**
+     * Returns the operand sizes, in digits, just below, at, and just above
+     * the NTT threshold, with both whole and partial leading limbs.
+     *
+     * @return the sizes around the threshold
+     */
+    private static int[] sizesAroundThreshold() {
+        int limbs = NaturalNumberNTT.NTT_THRESHOLD;
+        int digits = NaturalNumberNTT.LIMB_DIGITS;
+        return new int[] { (limbs - 1) * digits, (limbs - 1) * digits + 1,
+                limbs * digits, limbs * digits + 1, (limbs + 1) * digits,
+                (limbs + 1) * digits + 1 };
+    }
+
+    @Test
+    public void testNinesAroundThreshold() {
+        for (int xDigits : sizesAroundThreshold()) {
+            for (int yDigits : sizesAroundThreshold()) {
+                assertProduct(nines(xDigits), nines(yDigits));
+            }
+        }
+    }
+
+    @Test
+    public void testRandomAroundThreshold() {
+        Random random = new Random(SEED);
+        for (int xDigits : sizesAroundThreshold()) {
+            for (int yDigits : sizesAroundThreshold()) {
+                assertProduct(randomNumber(random, xDigits),
+                        randomNumber(random, yDigits));
+            }
+        }
+    }
+
+    @Test
+    public void testLargeNines() {
+        /*
+         * Every limb is 999999, so every convolution coefficient is as large
+         * as it can be for its position and every carry propagates
+         */
+        final int digits = 200_000;
+        assertProduct(nines(digits), nines(digits));
+    }
+
+    @Test
+    public void testNinesNeedingAllThreePrimes() {
+        /*
+         * With 200,000 limbs of 999999, the middle coefficient is about
+         * 2 * 10^17, above P1 * P2 (about 1.7 * 10^17), so it is only
+         * recovered correctly if the third prime is used
+         */
+        final int limbs = 200_000;
+        int digits = limbs * NaturalNumberNTT.LIMB_DIGITS;
+        assertProduct(nines(digits), nines(digits));
+    }
+
+    @Test
+    public void testPowerOfTenTimesNines() {
+        final int digits = 50_001;
+        assertProduct(BigInteger.TEN.pow(digits), nines(digits));
+    }
+
+    @Test
+    public void testUnequalLengths() {
+        Random random = new Random(SEED);
+        int threshold = NaturalNumberNTT.NTT_THRESHOLD
+                * NaturalNumberNTT.LIMB_DIGITS;
+        final int[] longer = { threshold + 1, 10 * threshold + 3, 30_007 };
+        final int[] shorter = { 1, 5, threshold - 1, threshold, threshold + 1 };
+        for (int xDigits : longer) {
+            for (int yDigits : shorter) {
+                if (yDigits <= xDigits) {
+                    BigInteger x = randomNumber(random, xDigits);
+                    BigInteger y = randomNumber(random, yDigits);
+                    assertProduct(x, y);
+                    assertProduct(y, x);
+                    assertProduct(nines(xDigits), nines(yDigits));
+                    assertProduct(nines(yDigits), nines(xDigits));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRandomLarge() {
+        Random random = new Random(SEED);
+        final int trials = 20;
+        final int maxDigits = 40_000;
+        for (int i = 0; i < trials; i++) {
+            assertProduct(randomNumber(random, 1 + random.nextInt(maxDigits)),
+                    randomNumber(random, 1 + random.nextInt(maxDigits)));
+        }
+    }
+
+}
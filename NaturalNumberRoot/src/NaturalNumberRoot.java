@@ -18,6 +18,105 @@ public final class NaturalNumberRoot {
     private NaturalNumberRoot() {
     }
 
+    /**
+     * Compares {@code base} raised to the power {@code p} with {@code bound}.
+     * The power is built up one factor at a time, and the multiplication stops
+     * as soon as the running product exceeds {@code bound}, so no more than one
+     * factor of work is ever spent past {@code bound}. A base of 0 or 1, whose
+     * powers never grow, is answered without multiplying.
+     *
+     * @param base
+     *            the base
+     * @param p
+     *            the exponent
+     * @param bound
+     *            the number to compare against
+     * @return a negative integer, zero, or a positive integer as
+     *         {@code base ^ (p)} is less than, equal to, or greater than
+     *         {@code bound}
+     * @requires p >= 0
+     * @ensures <pre>
+     * compareToPower < 0  iff  base ^ (p) < bound  and
+     * compareToPower = 0  iff  base ^ (p) = bound  and
+     * compareToPower > 0  iff  base ^ (p) > bound
+     * </pre>
+     */
+    private static int compareToPower(NaturalNumber base, int p,
+            NaturalNumber bound) {
+        assert base != null : "Violation of: base is not null";
+        assert bound != null : "Violation of: bound is not null";
+        assert p >= 0 : "Violation of: p >= 0";
+
+        NaturalNumber product = base.newInstance();
+        product.setFromInt(1);
+        if (p > 0 && base.compareTo(product) <= 0) {
+            /*
+             * 0 ^ (p) = 0 and 1 ^ (p) = 1 for p > 0
+             */
+            product.copyFrom(base);
+        } else {
+            /*
+             * Once product > bound, every further factor (base >= 2) keeps it
+             * above bound, so the loop can stop early
+             */
+            int count = 0;
+            while (count < p && product.compareTo(bound) <= 0) {
+                product.multiply(base);
+                count++;
+            }
+        }
+        return product.compareTo(bound);
+    }
+
+    /**
+     * Performs one step of the interval-halving search for the {@code r}-th
+     * root of {@code n}: the midpoint {@code mid} of {@code lowEnough} and
+     * {@code tooHigh} replaces {@code tooHigh} if {@code mid ^ (r) > n}, and
+     * {@code lowEnough} otherwise. Shared with the NaturalNumberCalculator
+     * project, whose root computation reports progress between steps.
+     *
+     * @param lowEnough
+     *            the lower end of the interval
+     * @param tooHigh
+     *            the upper end of the interval
+     * @param n
+     *            the number whose root is searched for
+     * @param r
+     *            root
+     * @updates lowEnough, tooHigh
+     * @requires <pre>
+     * r >= 2  and  lowEnough ^ (r) <= n < tooHigh ^ (r)  and
+     * tooHigh - lowEnough > 1
+     * </pre>
+     * @ensures <pre>
+     * lowEnough ^ (r) <= n < tooHigh ^ (r)  and
+     * tooHigh - lowEnough <= (#tooHigh - #lowEnough + 1) / 2
+     * </pre>
+     */
+    public static void halveInterval(NaturalNumber lowEnough,
+            NaturalNumber tooHigh, NaturalNumber n, int r) {
+        assert lowEnough != null : "Violation of: lowEnough is not null";
+        assert tooHigh != null : "Violation of: tooHigh is not null";
+        assert n != null : "Violation of: n is not null";
+        assert r >= 2 : "Violation of: r >= 2";
+
+        /*
+         * mid = (lowEnough + tooHigh) / 2
+         */
+        NaturalNumber mid = n.newInstance();
+        NaturalNumber two = n.newInstance();
+        two.setFromInt(2);
+        mid.copyFrom(lowEnough);
+        mid.add(tooHigh);
+        mid.divide(two);
+
+        if (compareToPower(mid, r, n) > 0) {
+            tooHigh.transferFrom(mid); // If mid^r > n, set tooHigh = mid
+        } else {
+            lowEnough.transferFrom(mid); // Else, set lowEnough = mid
+        }
+    }
+
     /**
      * Updates {@code n} to the {@code r}-th root of its incoming value.
      *
@@ -41,12 +140,6 @@ public final class NaturalNumberRoot {
         tooHigh.copyFrom(n);
         tooHigh.increment(); // tooHigh = n + 1
 
-        /*
-         * Temporary NaturalNumbers for mid and power
-         */
-        NaturalNumber mid = n.newInstance();
-        NaturalNumber power = n.newInstance();
-
         /*
          * Break condition for while loop set up
          */
@@ -60,26 +153,7 @@ public final class NaturalNumberRoot {
          * Algorithm: perform integer halving
          */
         while (diff.compareTo(one) > 0) {
-            /*
-             * mid = (lowEnough + tooHigh) / 2
-             */
-            mid.copyFrom(lowEnough);
-            mid.add(tooHigh);
-            NaturalNumber two = n.newInstance();
-            two.setFromInt(2);
-            mid.divide(two);
-
-            /*
-             * power = mid^r
-             */
-            power.copyFrom(mid);
-            power.power(r);
-
-            if (power.compareTo(n) > 0) {
-                tooHigh.copyFrom(mid); // If mid^r > n, set tooHigh = mid
-            } else {
-                lowEnough.copyFrom(mid); // Else, set lowEnough = mid
-            }
+            halveInterval(lowEnough, tooHigh, n, r);
 
             /*
              * diff = tooHigh - lowEnough
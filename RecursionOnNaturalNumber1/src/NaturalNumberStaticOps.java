@@ -7,8 +7,8 @@ import components.simplewriter.SimpleWriter1L;
 
 /**
  * Program with implementation of some {@code NaturalNumber} secondary
- * operations implemented as static methods: increment, decrement, and
- * printWithCommas, toStringWithCommas.
+ * operations implemented as static methods: increment, decrement, addSmall,
+ * printWithCommas, and toStringWithCommas.
  *
  * @author S. Park
  *
@@ -16,9 +16,15 @@ import components.simplewriter.SimpleWriter1L;
 public final class NaturalNumberStaticOps {
 
     /**
-     * Constant needed to print/convert {@code NaturalNumber} with commas.
+     * Number of digits between commas when printing/converting
+     * {@code NaturalNumber} with commas.
      */
-    private static final NaturalNumber ONE_THOUSAND = new NaturalNumber2(1000);
+    private static final int DIGITS_PER_GROUP = 3;
+
+    /**
+     * Maximum number of decimal digits in a non-negative {@code long}.
+     */
+    private static final int LONG_DIGITS = 19;
 
     /**
      * Private constructor so this utility class cannot be instantiated.
@@ -46,14 +52,40 @@ public final class NaturalNumberStaticOps {
         out.println();
         out.println("Command: i [increment]");
         out.println("         d [decrement]");
+        out.println("         a [addSmall]");
         out.println("         p [printWithCommas]");
         out.println("         s [toStringWithCommas]");
         out.print("         q [quit]: ");
         return in.nextLine();
     }
 
+    /**
+     * Reads a natural number entered by the user.
+     *
+     * @param in
+     *            the input stream
+     * @param out
+     *            the output stream
+     * @return the number entered by the user
+     * @updates in.content
+     * @updates out.content
+     * @requires in.is_open and out.is_open
+     * @ensures <pre>
+     * [prompts the user for a natural number, inputs and returns it]
+     * </pre>
+     */
+    private static NaturalNumber getNaturalNumber(SimpleReader in, SimpleWriter out) {
+        out.print("Enter a natural number: ");
+        return new NaturalNumber2(in.nextLine());
+    }
+
     /**
      * Increments the given {@code NaturalNumber}.
+     * <p>
+     * Only the trailing 9s are removed and put back (as 0s), without
+     * recursion, so the cost is proportional to the length of the carry; over
+     * any sequence of increments this is O(1) amortized per call.
+     * </p>
      *
      * @param n
      *            the number to increment
@@ -62,17 +94,25 @@ public final class NaturalNumberStaticOps {
      */
     private static void increment(NaturalNumber n) {
         assert n != null : "Violation of: n is not null";
+
+        int nines = 0;
         int digit = n.divideBy10();
-        digit = digit + 1;
-        if (digit == NaturalNumber.RADIX) {
-            digit = 0;
-            increment(n);
+        while (digit == NaturalNumber.RADIX - 1) {
+            nines++;
+            digit = n.divideBy10();
+        }
+        n.multiplyBy10(digit + 1);
+        for (int i = 0; i < nines; i++) {
+            n.multiplyBy10(0);
         }
-        n.multiplyBy10(digit);
     }
 
     /**
      * Decrements the given {@code NaturalNumber}.
+     * <p>
+     * Only the trailing 0s are removed and put back (as 9s), without
+     * recursion, so the cost is proportional to the length of the borrow.
+     * </p>
      *
      * @param n
      *            the number to decrement
@@ -84,14 +124,56 @@ public final class NaturalNumberStaticOps {
         assert n != null : "Violation of: n is not null";
         assert !n.isZero() : "Violation of: n > 0";
 
+        int zeros = 0;
         int digit = n.divideBy10();
-        digit = digit - 1;
+        while (digit == 0) {
+            zeros++;
+            digit = n.divideBy10();
+        }
+        n.multiplyBy10(digit - 1);
+        for (int i = 0; i < zeros; i++) {
+            n.multiplyBy10(NaturalNumber.RADIX - 1);
+        }
+    }
 
-        if (digit == -1) {
-            digit = (NaturalNumber.RADIX - 1); //NaturalNumber.RADIX == 10
-            decrement(n);
+    /**
+     * Adds the given {@code long} to the given {@code NaturalNumber}.
+     * <p>
+     * Only as many low-order digits of {@code n} as {@code k} has are removed
+     * and put back, plus the carry out of them (handled by
+     * {@code increment}), so the cost does not depend on the length of
+     * {@code n}.
+     * </p>
+     *
+     * @param n
+     *            the number to add to
+     * @param k
+     *            the amount to add
+     * @updates n
+     * @requires k >= 0
+     * @ensures n = #n + k
+     */
+    private static void addSmall(NaturalNumber n, long k) {
+        assert n != null : "Violation of: n is not null";
+        assert k >= 0 : "Violation of: k >= 0";
+
+        int[] low = new int[LONG_DIGITS];
+        int count = 0;
+        int carry = 0;
+        long rest = k;
+        while (rest > 0) {
+            int sum = n.divideBy10() + (int) (rest % NaturalNumber.RADIX) + carry;
+            rest /= NaturalNumber.RADIX;
+            carry = sum / NaturalNumber.RADIX;
+            low[count] = sum % NaturalNumber.RADIX;
+            count++;
+        }
+        if (carry > 0) {
+            increment(n);
+        }
+        for (int i = count - 1; i >= 0; i--) {
+            n.multiplyBy10(low[i]);
         }
-        n.multiplyBy10(digit);
     }
 
     /**
@@ -107,35 +189,19 @@ public final class NaturalNumberStaticOps {
      * @ensures out.content = #out.content * [display of n with commas]
      */
     private static void printWithCommas(NaturalNumber n, SimpleWriter out) {
-        assert n != null : "Violation of: n1 is not null";
+        assert n != null : "Violation of: n is not null";
         assert out != null : "Violation of: out is not null";
         assert out.isOpen() : "Violation of: out.is_open";
 
-        /*
-         * Base Case
-         */
-        if (n.compareTo(ONE_THOUSAND) < 0) {
-            out.print(n);
-        } else { //greater than 1000
-
-            // if n = 1000
-
-            int digit1 = n.divideBy10(); // 0
-            int digit2 = n.divideBy10(); // 0
-            int digit3 = n.divideBy10(); // 0
-
-            /*
-             * Recursive case print
-             */
-
-            out.print("," + digit3 + digit2 + digit1); //,000
-
-            printWithCommas(n, out);
-        }
+        out.print(toStringWithCommas(n));
     }
 
     /**
      * Converts the given {@code NaturalNumber} to a {@code String} with commas.
+     * The digits are produced once by {@code toString}, which is linear since
+     * {@code NaturalNumber2} keeps its value as decimal digits, and the grouped
+     * result is written left to right into a {@code char} array sized exactly
+     * for the digits plus commas, so {@code n} is never modified.
      *
      * @param n
      *            the number to convert
@@ -145,7 +211,24 @@ public final class NaturalNumberStaticOps {
     private static String toStringWithCommas(NaturalNumber n) {
         assert n != null : "Violation of: n is not null";
 
-        return "";
+        String digits = n.toString();
+        int length = digits.length();
+        char[] grouped = new char[length + (length - 1) / DIGITS_PER_GROUP];
+        /*
+         * The leading group has 1 to DIGITS_PER_GROUP digits; every later
+         * group is preceded by a comma
+         */
+        int firstGroup = (length - 1) % DIGITS_PER_GROUP + 1;
+        int j = 0;
+        for (int i = 0; i < length; i++) {
+            if (i >= firstGroup && (i - firstGroup) % DIGITS_PER_GROUP == 0) {
+                grouped[j] = ',';
+                j++;
+            }
+            grouped[j] = digits.charAt(i);
+            j++;
+        }
+        return new String(grouped);
     }
 
     /**
@@ -162,28 +245,31 @@ public final class NaturalNumberStaticOps {
         while (!command.equals("q")) {
             out.println();
             if (command.equals("i")) {
-                out.print("Enter a natural number: ");
-                NaturalNumber n = new NaturalNumber2(in.nextLine());
+                NaturalNumber n = getNaturalNumber(in, out);
                 out.println("Before increment: n = " + n);
                 increment(n);
                 out.println("After increment:  n = " + n);
             } else if (command.equals("d")) {
-                out.print("Enter a natural number: ");
-                NaturalNumber n = new NaturalNumber2(in.nextLine());
+                NaturalNumber n = getNaturalNumber(in, out);
                 out.println("Before decrement: n = " + n);
                 decrement(n);
                 out.println("After decrement:  n = " + n);
+            } else if (command.equals("a")) {
+                NaturalNumber n = getNaturalNumber(in, out);
+                out.print("Enter a non-negative long: ");
+                long k = Long.parseLong(in.nextLine());
+                out.println("Before addSmall: n = " + n);
+                addSmall(n, k);
+                out.println("After addSmall:  n = " + n);
             } else if (command.equals("p")) {
-                out.print("Enter a natural number: ");
-                NaturalNumber n = new NaturalNumber2(in.nextLine());
+                NaturalNumber n = getNaturalNumber(in, out);
                 out.println("Before printWithCommas: n = " + n);
                 out.print("Number with commas: ");
                 printWithCommas(n, out);
                 out.println();
                 out.println("After printWithCommas:  n = " + n);
             } else if (command.equals("s")) {
-                out.print("Enter a natural number: ");
-                NaturalNumber n = new NaturalNumber2(in.nextLine());
+                NaturalNumber n = getNaturalNumber(in, out);
                 out.println("Before toStringWithCommas: n = " + n);
                 out.println("Number with commas: " + toStringWithCommas(n));
                 out.println("After toStringWithCommas:  n = " + n);
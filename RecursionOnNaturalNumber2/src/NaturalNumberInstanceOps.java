@@ -1,3 +1,5 @@
+import java.util.Arrays;
+
 import components.naturalnumber.NaturalNumber;
 import components.naturalnumber.NaturalNumber2;
 
@@ -10,6 +12,11 @@ import components.naturalnumber.NaturalNumber2;
  */
 public final class NaturalNumberInstanceOps extends NaturalNumber2 {
 
+    /**
+     * Initial capacity of the digit arrays built by {@code toDigits}.
+     */
+    private static final int INITIAL_DIGITS = 16;
+
     /**
      * No-argument constructor.
      */
@@ -46,24 +53,160 @@ public final class NaturalNumberInstanceOps extends NaturalNumber2 {
         super(n);
     }
 
+    /**
+     * Returns the decimal digits of {@code n}, least significant first, with
+     * no leading zeros (so zero has no digits).
+     *
+     * @param n
+     *            the number whose digits to return
+     * @return the digits of {@code n}, least significant first
+     * @ensures <pre>
+     * [toDigits contains the digits of n, least significant first]  and
+     * [the last entry of toDigits, if any, is not 0]
+     * </pre>
+     */
+    private static int[] toDigits(NaturalNumber n) {
+        int[] digits = new int[INITIAL_DIGITS];
+        int length = 0;
+        while (!n.isZero()) {
+            if (length == digits.length) {
+                digits = Arrays.copyOf(digits, 2 * length);
+            }
+            digits[length] = n.divideBy10();
+            length++;
+        }
+        /*
+         * Restore n
+         */
+        for (int i = length - 1; i >= 0; i--) {
+            n.multiplyBy10(digits[i]);
+        }
+        return Arrays.copyOf(digits, length);
+    }
+
+    /**
+     * Sets {@code n} to the number whose digits, least significant first, are
+     * {@code digits[0, length)}.
+     *
+     * @param n
+     *            the number to set
+     * @param digits
+     *            the digits, least significant first
+     * @param length
+     *            the number of digits to use
+     * @replaces n
+     * @requires 0 <= length <= |digits| and [entries are in [0, RADIX)]
+     * @ensures n = [value of digits[0, length)]
+     */
+    private static void setFromDigits(NaturalNumber n, int[] digits, int length) {
+        n.clear();
+        for (int i = length - 1; i >= 0; i--) {
+            n.multiplyBy10(digits[i]);
+        }
+    }
+
+    /**
+     * Returns the digits of the product of {@code a} and {@code b}, where all
+     * digit arrays are least significant first. Partial products are
+     * accumulated per column in a {@code long} and the carries propagated
+     * once at the end.
+     *
+     * @param a
+     *            the digits of one factor
+     * @param b
+     *            the digits of the other factor
+     * @return the digits of the product, with no leading zeros
+     * @ensures [product contains the digits of a * b, least significant first]
+     */
+    private static int[] product(int[] a, int[] b) {
+        if (a.length == 0 || b.length == 0) {
+            return new int[0];
+        }
+        long[] columns = new long[a.length + b.length];
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != 0) {
+                for (int j = 0; j < b.length; j++) {
+                    columns[i + j] += a[i] * b[j];
+                }
+            }
+        }
+        return normalize(columns);
+    }
+
+    /**
+     * Returns the digits of the square of {@code a}, where all digit arrays
+     * are least significant first. Each cross product {@code a[i] * a[j]} with
+     * {@code i < j} is computed once and doubled, so squaring takes about half
+     * the digit multiplications of {@code product(a, a)}.
+     *
+     * @param a
+     *            the digits of the number to square
+     * @return the digits of the square, with no leading zeros
+     * @ensures [square contains the digits of a * a, least significant first]
+     */
+    private static int[] square(int[] a) {
+        if (a.length == 0) {
+            return new int[0];
+        }
+        long[] columns = new long[2 * a.length];
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != 0) {
+                int twice = 2 * a[i];
+                for (int j = i + 1; j < a.length; j++) {
+                    columns[i + j] += twice * a[j];
+                }
+                columns[2 * i] += a[i] * a[i];
+            }
+        }
+        return normalize(columns);
+    }
+
+    /**
+     * Propagates the carries in {@code columns} and returns the resulting
+     * digits, least significant first.
+     *
+     * @param columns
+     *            per-column sums, least significant first
+     * @return the digits of the value of {@code columns}, with no leading
+     *         zeros
+     * @requires [the value of columns fits in |columns| digits]
+     * @ensures [normalize contains the digits of the value of columns]
+     */
+    private static int[] normalize(long[] columns) {
+        int[] digits = new int[columns.length];
+        long carry = 0;
+        for (int i = 0; i < columns.length; i++) {
+            long sum = columns[i] + carry;
+            digits[i] = (int) (sum % RADIX);
+            carry = sum / RADIX;
+        }
+        int length = digits.length;
+        while (length > 0 && digits[length - 1] == 0) {
+            length--;
+        }
+        return Arrays.copyOf(digits, length);
+    }
+
     @Override
     public void add(NaturalNumber n) {
         assert n != null : "Violation of: n is not null";
-        /**
-         * @decreases n
-         */
-        int thisLowDigit = this.divideBy10();
-        int nLowDigit = n.divideBy10();
-        if (!n.isZero()) {
-            this.add(n);
-        }
-        thisLowDigit += nLowDigit;
-        if (thisLowDigit >= RADIX) {
-            thisLowDigit -= RADIX;
-            this.increment();
+
+        int[] a = toDigits(this);
+        int[] b = toDigits(n);
+        int[] sum = new int[Math.max(a.length, b.length) + 1];
+        int carry = 0;
+        for (int i = 0; i < sum.length; i++) {
+            int digit = carry;
+            if (i < a.length) {
+                digit += a[i];
+            }
+            if (i < b.length) {
+                digit += b[i];
+            }
+            carry = digit / RADIX;
+            sum[i] = digit % RADIX;
         }
-        this.multiplyBy10(thisLowDigit);
-        n.multiplyBy10(nLowDigit);
+        setFromDigits(this, sum, sum.length);
     }
 
     @Override
@@ -71,33 +214,46 @@ public final class NaturalNumberInstanceOps extends NaturalNumber2 {
         assert n != null : "Violation of: n is not null";
         assert this.compareTo(n) >= 0 : "Violation of: this >= n";
 
-        int thisLowDigit = this.divideBy10();
-        int nLowDigit = n.divideBy10();
-        if (!n.isZero()) {
-            this.subtract(n);
-        }
-        thisLowDigit -= nLowDigit;
-        if (thisLowDigit >= RADIX) {
-            thisLowDigit -= RADIX;
-            this.decrement();
+        int[] a = toDigits(this);
+        int[] b = toDigits(n);
+        int borrow = 0;
+        for (int i = 0; i < a.length; i++) {
+            int digit = a[i] - borrow;
+            if (i < b.length) {
+                digit -= b[i];
+            }
+            borrow = 0;
+            if (digit < 0) {
+                digit += RADIX;
+                borrow = 1;
+            }
+            a[i] = digit;
         }
-        this.multiplyBy10(thisLowDigit);
-        n.multiplyBy10(nLowDigit);
+        setFromDigits(this, a, a.length);
     }
 
     @Override
     public void power(int p) {
         assert p >= 0 : "Violation of: p >= 0";
 
-        int halfPower = p / 2;
-
-        NaturalNumber n = new NaturalNumber2(this);
-
-        while (halfPower > 0) {
-            n.multiply(this);
-            halfPower--;
+        /*
+         * Square-and-multiply: scan the bits of p from least significant,
+         * squaring the base at each step and multiplying it into the result
+         * whenever the bit is 1
+         */
+        int[] base = toDigits(this);
+        int[] result = { 1 };
+        int exponent = p;
+        while (exponent > 0) {
+            if (exponent % 2 == 1) {
+                result = product(result, base);
+            }
+            exponent /= 2;
+            if (exponent > 0) {
+                base = square(base);
+            }
         }
-
+        setFromDigits(this, result, result.length);
     }
 
 }
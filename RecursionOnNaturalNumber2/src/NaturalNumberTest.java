@@ -1,3 +1,6 @@
+import java.math.BigInteger;
+import java.util.Random;
+
 import components.naturalnumber.NaturalNumber;
 import components.simplereader.SimpleReader;
 import components.simplereader.SimpleReader1L;
@@ -5,19 +8,134 @@ import components.simplewriter.SimpleWriter;
 import components.simplewriter.SimpleWriter1L;
 
 /**
- * Program to test {@code NaturalNumberInstanceOps} methods subtract and power.
+ * Program to test {@code NaturalNumberInstanceOps} methods add, subtract, and
+ * power, interactively or by a randomized comparison with
+ * {@code java.math.BigInteger} (the same comparison, with a fixed seed, runs
+ * as part of {@code NaturalNumberInstanceOpsTest}).
  *
  * @author S. Park
  *
  */
 public final class NaturalNumberTest {
 
+    /**
+     * Maximum number of digits in a random operand.
+     */
+    private static final int MAX_DIGITS = 200;
+
+    /**
+     * Maximum exponent used for random power tests.
+     */
+    private static final int MAX_EXPONENT = 20;
+
     /**
      * Private constructor so this utility class cannot be instantiated.
      */
     private NaturalNumberTest() {
     }
 
+    /**
+     * Returns a random natural number with at most {@code MAX_DIGITS} digits,
+     * as a {@code BigInteger}.
+     *
+     * @param random
+     *            the source of randomness
+     * @return the random number
+     * @ensures 0 <= randomOperand < 10 ^ (MAX_DIGITS)
+     */
+    private static BigInteger randomOperand(Random random) {
+        int digits = 1 + random.nextInt(MAX_DIGITS);
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < digits; i++) {
+            s.append(random.nextInt(NaturalNumber.RADIX));
+        }
+        return new BigInteger(s.toString());
+    }
+
+    /**
+     * Reports whether {@code n} has the same value as {@code expected},
+     * printing a message to {@code out} if it does not.
+     *
+     * @param n
+     *            the computed value
+     * @param expected
+     *            the expected value
+     * @param description
+     *            description of the computation, for the message
+     * @param out
+     *            the output stream
+     * @return true iff n = expected
+     * @updates out.content
+     * @requires out.is_open
+     * @ensures check = (n = expected)
+     */
+    private static boolean check(NaturalNumber n, BigInteger expected,
+            String description, SimpleWriter out) {
+        boolean passed = n.toString().equals(expected.toString());
+        if (!passed) {
+            out.println("*** Failed: " + description + " expected <" + expected
+                    + "> but was <" + n + ">");
+        }
+        return passed;
+    }
+
+    /**
+     * Runs {@code trials} random add, subtract, and power tests, comparing
+     * {@code NaturalNumberInstanceOps} against {@code BigInteger}, and reports
+     * the number of failures.
+     *
+     * @param trials
+     *            the number of random operand pairs to try
+     * @param seed
+     *            the seed for the random number generator
+     * @param out
+     *            the output stream
+     * @updates out.content
+     * @requires out.is_open and trials >= 0
+     * @ensures out.content = #out.content * [report of the random tests]
+     */
+    private static void randomizedTest(int trials, long seed, SimpleWriter out) {
+        Random random = new Random(seed);
+        int failures = 0;
+        for (int i = 0; i < trials; i++) {
+            BigInteger x = randomOperand(random);
+            BigInteger y = randomOperand(random);
+            /*
+             * add
+             */
+            NaturalNumber n1 = new NaturalNumberInstanceOps(x.toString());
+            NaturalNumber n2 = new NaturalNumberInstanceOps(y.toString());
+            n1.add(n2);
+            if (!check(n1, x.add(y), x + " + " + y, out)
+                    || !check(n2, y, "add changed its argument", out)) {
+                failures++;
+            }
+            /*
+             * subtract, with the larger operand first
+             */
+            BigInteger big = x.max(y);
+            BigInteger small = x.min(y);
+            n1 = new NaturalNumberInstanceOps(big.toString());
+            n2 = new NaturalNumberInstanceOps(small.toString());
+            n1.subtract(n2);
+            if (!check(n1, big.subtract(small), big + " - " + small, out)
+                    || !check(n2, small, "subtract changed its argument", out)) {
+                failures++;
+            }
+            /*
+             * power
+             */
+            int p = random.nextInt(MAX_EXPONENT + 1);
+            n1 = new NaturalNumberInstanceOps(x.toString());
+            n1.power(p);
+            if (!check(n1, x.pow(p), x + " ^ " + p, out)) {
+                failures++;
+            }
+        }
+        out.println(trials + " random trials with seed " + seed + ": " + failures
+                + " failure(s)");
+    }
+
     /**
      * Get command from user.
      *
@@ -36,8 +154,10 @@ public final class NaturalNumberTest {
      */
     private static String getCommand(SimpleReader in, SimpleWriter out) {
         out.println();
-        out.println("Command: s [subtract]");
+        out.println("Command: a [add]");
+        out.println("         s [subtract]");
         out.println("         p [power]");
+        out.println("         r [randomized test against BigInteger]");
         out.print("         q [quit]: ");
         return in.nextLine();
     }
@@ -55,7 +175,15 @@ public final class NaturalNumberTest {
         String command = getCommand(in, out);
         while (!command.equals("q")) {
             out.println();
-            if (command.equals("s")) {
+            if (command.equals("a")) {
+                out.print("Enter first natural number: ");
+                NaturalNumber n1 = new NaturalNumberInstanceOps(in.nextLine());
+                out.print("Enter second natural number: ");
+                NaturalNumber n2 = new NaturalNumberInstanceOps(in.nextLine());
+                out.println("Before add: n1 = " + n1 + ", n2 = " + n2);
+                n1.add(n2);
+                out.println("After add:  n1 = " + n1 + ", n2 = " + n2);
+            } else if (command.equals("s")) {
                 out.print("Enter first natural number: ");
                 NaturalNumber n1 = new NaturalNumberInstanceOps(in.nextLine());
                 out.print("Enter second natural number: ");
@@ -71,6 +199,10 @@ public final class NaturalNumberTest {
                 out.println("Before power: n = " + n);
                 n.power(p);
                 out.println("After power:  n = " + n);
+            } else if (command.equals("r")) {
+                out.print("Enter the number of trials: ");
+                int trials = in.nextInteger();
+                randomizedTest(trials, System.nanoTime(), out);
             } else {
                 out.println(command);
             }
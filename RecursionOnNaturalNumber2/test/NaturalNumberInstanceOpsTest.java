@@ -0,0 +1,184 @@
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.Test;
+
+import components.naturalnumber.NaturalNumber;
+
+/**
+ * @author S. Park
+ *
+ */
+public class NaturalNumberInstanceOpsTest {
+
+    /**
+     * Number of random operand pairs tried by each randomized test.
+     */
+    private static final int TRIALS = 300;
+
+    /**
+     * Seed for the randomized tests, fixed so that a failure can be
+     * reproduced.
+     */
+    private static final long SEED = 20261019L;
+
+    /**
+     * Maximum number of digits in a random operand.
+     */
+    private static final int MAX_DIGITS = 200;
+
+    /**
+     * Maximum exponent used for random power tests.
+     */
+    private static final int MAX_EXPONENT = 20;
+
+    /**
+     * Returns a random natural number with at most {@code MAX_DIGITS} digits,
+     * as a {@code BigInteger}. Operands made only of 9s, or of a 1 followed
+     * by 0s, are mixed in so that long carries and borrows are exercised.
+     *
+     * @param random
+     *            the source of randomness
+     * @return the random number
+     * @ensures 0 <= randomOperand < 10 ^ (MAX_DIGITS)
+     */
+    private static BigInteger randomOperand(Random random) {
+        int digits = 1 + random.nextInt(MAX_DIGITS);
+        int kind = random.nextInt(4);
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < digits; i++) {
+            if (kind == 0) {
+                s.append(NaturalNumber.RADIX - 1);
+            } else if (kind == 1) {
+                s.append(i == 0 ? 1 : 0);
+            } else {
+                s.append(random.nextInt(NaturalNumber.RADIX));
+            }
+        }
+        return new BigInteger(s.toString());
+    }
+
+    /*
+     * Tests of add
+     */
+
+    @Test
+    public void testAdd_0_0() {
+        NaturalNumber n1 = new NaturalNumberInstanceOps(0);
+        NaturalNumber n2 = new NaturalNumberInstanceOps(0);
+        n1.add(n2);
+        assertEquals("0", n1.toString());
+        assertEquals("0", n2.toString());
+    }
+
+    @Test
+    public void testAdd_999_1() {
+        NaturalNumber n1 = new NaturalNumberInstanceOps(999);
+        NaturalNumber n2 = new NaturalNumberInstanceOps(1);
+        n1.add(n2);
+        assertEquals("1000", n1.toString());
+        assertEquals("1", n2.toString());
+    }
+
+    @Test
+    public void testAdd_1_999() {
+        NaturalNumber n1 = new NaturalNumberInstanceOps(1);
+        NaturalNumber n2 = new NaturalNumberInstanceOps(999);
+        n1.add(n2);
+        assertEquals("1000", n1.toString());
+        assertEquals("999", n2.toString());
+    }
+
+    @Test
+    public void testAddRandomAgainstBigInteger() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < TRIALS; i++) {
+            BigInteger x = randomOperand(random);
+            BigInteger y = randomOperand(random);
+            NaturalNumber n1 = new NaturalNumberInstanceOps(x.toString());
+            NaturalNumber n2 = new NaturalNumberInstanceOps(y.toString());
+            n1.add(n2);
+            assertEquals(x + " + " + y, x.add(y).toString(), n1.toString());
+            assertEquals(y.toString(), n2.toString());
+        }
+    }
+
+    /*
+     * Tests of subtract
+     */
+
+    @Test
+    public void testSubtract_1000_1() {
+        NaturalNumber n1 = new NaturalNumberInstanceOps(1000);
+        NaturalNumber n2 = new NaturalNumberInstanceOps(1);
+        n1.subtract(n2);
+        assertEquals("999", n1.toString());
+        assertEquals("1", n2.toString());
+    }
+
+    @Test
+    public void testSubtract_123_123() {
+        NaturalNumber n1 = new NaturalNumberInstanceOps(123);
+        NaturalNumber n2 = new NaturalNumberInstanceOps(123);
+        n1.subtract(n2);
+        assertEquals("0", n1.toString());
+        assertEquals("123", n2.toString());
+    }
+
+    @Test
+    public void testSubtractRandomAgainstBigInteger() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < TRIALS; i++) {
+            BigInteger x = randomOperand(random);
+            BigInteger y = randomOperand(random);
+            BigInteger big = x.max(y);
+            BigInteger small = x.min(y);
+            NaturalNumber n1 = new NaturalNumberInstanceOps(big.toString());
+            NaturalNumber n2 = new NaturalNumberInstanceOps(small.toString());
+            n1.subtract(n2);
+            assertEquals(big + " - " + small, big.subtract(small).toString(),
+                    n1.toString());
+            assertEquals(small.toString(), n2.toString());
+        }
+    }
+
+    /*
+     * Tests of power
+     */
+
+    @Test
+    public void testPower_0_0() {
+        NaturalNumber n = new NaturalNumberInstanceOps(0);
+        n.power(0);
+        assertEquals("1", n.toString());
+    }
+
+    @Test
+    public void testPower_0_5() {
+        NaturalNumber n = new NaturalNumberInstanceOps(0);
+        n.power(5);
+        assertEquals("0", n.toString());
+    }
+
+    @Test
+    public void testPower_2_10() {
+        NaturalNumber n = new NaturalNumberInstanceOps(2);
+        n.power(10);
+        assertEquals("1024", n.toString());
+    }
+
+    @Test
+    public void testPowerRandomAgainstBigInteger() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < TRIALS; i++) {
+            BigInteger x = randomOperand(random);
+            int p = random.nextInt(MAX_EXPONENT + 1);
+            NaturalNumber n = new NaturalNumberInstanceOps(x.toString());
+            n.power(p);
+            assertEquals(x + " ^ " + p, x.pow(p).toString(), n.toString());
+        }
+    }
+
+}
@@ -0,0 +1,293 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import javax.xml.stream.XMLStreamException;
+
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Batch evaluation of many XML expression files.
+ * <p>
+ * The files are either the {@code .xml} files of a directory (in name order)
+ * or those listed, one per line, in a manifest file (relative names are
+ * resolved against the manifest's directory). Files are read on a pool of
+ * I/O threads and parsed into an {@code XMLTreeExpressionDag} and evaluated
+ * on a pool with one thread per processor ({@code NaturalNumber}
+ * expressions go through {@code evaluateParallel}, which spreads one with
+ * enough unshared work over the processors); a bounded number of files are
+ * in flight at once, so memory use does not grow with the number of files.
+ * </p>
+ * <p>
+ * For each file, in input order, one tab-separated line is written: the file
+ * name, its value (or {@code error:} and the reason), the time to read it,
+ * and the time to parse and evaluate it, both in microseconds ({@code -}
+ * for a time that was not measured because the file could not be read). A
+ * summary with the total time goes to the error stream.
+ * </p>
+ * <p>
+ * Usage: {@code XMLTreeExpressionBatch (int | nn) directory-or-manifest
+ * [output-file]}.
+ * </p>
+ *
+ * @author S. Park
+ *
+ */
+public final class XMLTreeExpressionBatch {
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private XMLTreeExpressionBatch() {
+    }
+
+    /**
+     * Number of threads parsing and evaluating.
+     */
+    private static final int EVALUATION_THREADS = Runtime.getRuntime()
+            .availableProcessors();
+
+    /**
+     * Number of threads reading files, which mostly wait on the file system.
+     */
+    private static final int IO_THREADS = 4 * EVALUATION_THREADS;
+
+    /**
+     * Largest number of files read or evaluated but not yet written.
+     */
+    private static final int MAX_IN_FLIGHT = 16 * EVALUATION_THREADS;
+
+    /**
+     * Nanoseconds per microsecond and per millisecond.
+     */
+    private static final long NANOS_PER_MICRO = 1_000L, NANOS_PER_MILLI = 1_000_000L;
+
+    /**
+     * Placeholder written in place of a time that was not measured.
+     */
+    private static final String NOT_TIMED = "-";
+
+    /**
+     * Contents of a file, with the time it took to read.
+     */
+    private static final class Contents {
+
+        /**
+         * The bytes of the file.
+         */
+        private final byte[] bytes;
+
+        /**
+         * Time to read the file, in nanoseconds.
+         */
+        private final long readNanos;
+
+        /**
+         * Constructor.
+         *
+         * @param bytes
+         *            the bytes of the file
+         * @param readNanos
+         *            time to read the file, in nanoseconds
+         */
+        Contents(byte[] bytes, long readNanos) {
+            this.bytes = bytes;
+            this.readNanos = readNanos;
+        }
+
+    }
+
+    /**
+     * Reads a file.
+     *
+     * @param file
+     *            the file to read
+     * @return its contents and the time taken
+     * @throws UncheckedIOException
+     *             if the file cannot be read
+     */
+    private static Contents read(Path file) {
+        long start = System.nanoTime();
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            return new Contents(bytes, System.nanoTime() - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the output value reporting {@code e}, on a single line.
+     *
+     * @param e
+     *            the exception
+     * @return "error: " followed by the message of e
+     */
+    private static String error(Throwable e) {
+        return "error: " + String.valueOf(e.getMessage()).replaceAll("\\R", "; ");
+    }
+
+    /**
+     * Returns the output line for a file whose processing failed before it
+     * could be timed, with the same columns as any other line.
+     *
+     * @param file
+     *            the file name
+     * @param e
+     *            the exception, possibly wrapped in a
+     *            {@code CompletionException}
+     * @return the output line for the file
+     */
+    private static String failure(Path file, Throwable e) {
+        Throwable cause = e;
+        if (e instanceof CompletionException && e.getCause() != null) {
+            cause = e.getCause();
+        }
+        return file + "\t" + error(cause) + "\t" + NOT_TIMED + "\t" + NOT_TIMED;
+    }
+
+    /**
+     * Parses and evaluates an expression file and returns its output line.
+     *
+     * @param file
+     *            the file name
+     * @param contents
+     *            the contents of the file
+     * @param natural
+     *            whether to evaluate with {@code NaturalNumber} rather than
+     *            {@code int}
+     * @return the output line for the file
+     */
+    private static String evaluate(Path file, Contents contents, boolean natural) {
+        long start = System.nanoTime();
+        String value;
+        try {
+            XMLTreeExpressionDag dag = new XMLTreeExpressionDag(
+                    new ByteArrayInputStream(contents.bytes));
+            if (natural) {
+                value = XMLTreeNNExpressionEvaluator.evaluateParallel(dag).toString();
+            } else {
+                value = Integer.toString(XMLTreeIntExpressionEvaluator.evaluateDag(dag));
+            }
+        } catch (XMLStreamException | RuntimeException | AssertionError
+                | StackOverflowError | OutOfMemoryError e) {
+            /*
+             * One malformed or erroneous file must not stop the batch: this
+             * includes fatal errors reported by the evaluators, a nesting too
+             * deep for the recursive evaluation, and a value too large for
+             * memory (whose operands are unreachable once this is caught)
+             */
+            value = error(e);
+        }
+        long evaluateNanos = System.nanoTime() - start;
+        return file + "\t" + value + "\t" + contents.readNanos / NANOS_PER_MICRO
+                + "\t" + evaluateNanos / NANOS_PER_MICRO;
+    }
+
+    /**
+     * Returns the expression files named by {@code source}: the {@code .xml}
+     * files of a directory, in name order, or the files listed in a manifest.
+     *
+     * @param source
+     *            a directory or manifest file name
+     * @return the expression files
+     * @throws IOException
+     *             if the directory cannot be listed
+     */
+    private static List<Path> expressionFiles(String source) throws IOException {
+        Path path = Paths.get(source);
+        List<Path> files = new ArrayList<>();
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> entries = Files.list(path)) {
+                entries.filter(p -> p.toString().endsWith(".xml")).sorted()
+                        .forEach(files::add);
+            }
+        } else {
+            Path base = path.toAbsolutePath().getParent();
+            SimpleReader manifest = new SimpleReader1L(source);
+            while (!manifest.atEOS()) {
+                String line = manifest.nextLine().trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    files.add(base.resolve(line));
+                }
+            }
+            manifest.close();
+        }
+        return files;
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments: "int" or "nn", a directory or
+     *            manifest file name, and an optional output file name
+     * @throws IOException
+     *             if the directory cannot be listed
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || !args[0].matches("int|nn")) {
+            System.err.println("Usage: XMLTreeExpressionBatch (int | nn) "
+                    + "directory-or-manifest [output-file]");
+            return;
+        }
+        boolean natural = args[0].equals("nn");
+        SimpleWriter out;
+        if (args.length > 2) {
+            out = new SimpleWriter1L(args[2]);
+        } else {
+            out = new SimpleWriter1L();
+        }
+
+        long start = System.nanoTime();
+        List<Path> files = expressionFiles(args[1]);
+        ExecutorService io = Executors.newFixedThreadPool(IO_THREADS);
+        ExecutorService evaluation = Executors.newFixedThreadPool(EVALUATION_THREADS);
+        Queue<CompletableFuture<String>> pending = new ArrayDeque<>();
+        for (Path file : files) {
+            /*
+             * A file counts against MAX_IN_FLIGHT until its line is written,
+             * not just until it is evaluated: when the queue is full, wait
+             * for the oldest file, however slow, and write it first
+             */
+            if (pending.size() == MAX_IN_FLIGHT) {
+                out.println(pending.remove().join());
+            }
+            pending.add(CompletableFuture.supplyAsync(() -> read(file), io)
+                    .thenApplyAsync(contents -> evaluate(file, contents, natural),
+                            evaluation)
+                    .exceptionally(e -> failure(file, e)));
+            /*
+             * Write, in order, whatever has already finished
+             */
+            while (!pending.isEmpty() && pending.peek().isDone()) {
+                out.println(pending.remove().join());
+            }
+        }
+        while (!pending.isEmpty()) {
+            out.println(pending.remove().join());
+        }
+        io.shutdown();
+        evaluation.shutdown();
+        long millis = (System.nanoTime() - start) / NANOS_PER_MILLI;
+        System.err.println(files.size() + " files in " + millis + " ms");
+
+        out.close();
+    }
+
+}
@@ -0,0 +1,406 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import components.utilities.Reporter;
+
+/**
+ * Compact binary encoding of XML arithmetic expressions, with a converter
+ * from the XML format and a reader that memory-maps the binary file.
+ * <p>
+ * A binary expression file ({@code .xeb}) starts with the four bytes
+ * {@code XEB1}, followed by the nodes of the expression in post-order. Each
+ * node is an opcode, written as a varint (7 bits per byte, least significant
+ * group first, high bit set on all but the last byte): {@code PLUS},
+ * {@code MINUS}, {@code TIMES}, or {@code DIVIDE} for an operator, or
+ * {@code NUMBER} or {@code NEGATIVE_NUMBER} for a literal. A literal's opcode
+ * is followed by its number of decimal digits, as a varint, and then the
+ * digits packed two per byte, most significant digit in the high nibble
+ * first (with a zero low nibble after an odd last digit).
+ * </p>
+ * <p>
+ * Because the nodes are already in post-order, an evaluator reads them once,
+ * front to back, reducing a value stack as it goes: no parsing, no tree, and
+ * no label comparisons beyond mapping each opcode to its label.
+ * </p>
+ *
+ * @author S. Park
+ *
+ */
+public final class XMLTreeExpressionBinary {
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private XMLTreeExpressionBinary() {
+    }
+
+    /**
+     * Magic bytes at the start of every binary expression file.
+     */
+    private static final byte[] MAGIC = "XEB1".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Opcodes.
+     */
+    private static final int NUMBER = 0, PLUS = 1, MINUS = 2, TIMES = 3,
+            DIVIDE = 4, NEGATIVE_NUMBER = 5;
+
+    /**
+     * Labels of the opcodes, indexed by opcode.
+     */
+    private static final String[] LABELS = { "number", "plus", "minus", "times",
+            "divide", "number" };
+
+    /**
+     * Bits of payload per varint byte, and the continuation bit.
+     */
+    private static final int VARINT_BITS = 7, CONTINUATION = 0x80;
+
+    /**
+     * Mask of the low nibble of a byte, and the number of bits in a nibble.
+     */
+    private static final int NIBBLE = 0x0F, NIBBLE_BITS = 4;
+
+    /**
+     * Mask of the bits of a byte.
+     */
+    private static final int BYTE_MASK = 0xFF;
+
+    /**
+     * Initial capacity of the literal buffer.
+     */
+    private static final int INITIAL_DIGITS = 32;
+
+    /**
+     * Largest part of a file mapped into memory at once.
+     */
+    private static final long MAP_WINDOW = 1L << 30;
+
+    /**
+     * Factory for the streaming readers used by the converter; DTDs are not
+     * supported, so no external entities are ever fetched.
+     */
+    private static final XMLInputFactory XML_INPUT = XMLInputFactory.newInstance();
+
+    static {
+        XML_INPUT.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    }
+
+    /**
+     * Writes {@code value} as a varint.
+     *
+     * @param out
+     *            the output stream
+     * @param value
+     *            the value to write
+     * @throws IOException
+     *             if writing fails
+     * @requires value >= 0
+     */
+    private static void writeVarint(OutputStream out, int value) throws IOException {
+        int rest = value;
+        while (rest >= CONTINUATION) {
+            out.write((rest & (CONTINUATION - 1)) | CONTINUATION);
+            rest >>>= VARINT_BITS;
+        }
+        out.write(rest);
+    }
+
+    /**
+     * Writes a number literal.
+     *
+     * @param out
+     *            the output stream
+     * @param value
+     *            the value attribute of the literal
+     * @throws IOException
+     *             if writing fails
+     */
+    private static void writeNumber(OutputStream out, String value) throws IOException {
+        Reporter.assertElseFatalError(value != null,
+                "Missing value attribute in <number> node.");
+        Reporter.assertElseFatalError(value.matches("-?[0-9]+"),
+                "Invalid number: " + value);
+        int start = 0;
+        if (value.charAt(0) == '-') {
+            writeVarint(out, NEGATIVE_NUMBER);
+            start = 1;
+        } else {
+            writeVarint(out, NUMBER);
+        }
+        int length = value.length() - start;
+        writeVarint(out, length);
+        for (int i = start; i < value.length(); i += 2) {
+            int high = value.charAt(i) - '0';
+            int low = 0;
+            if (i + 1 < value.length()) {
+                low = value.charAt(i + 1) - '0';
+            }
+            out.write((high << NIBBLE_BITS) | low);
+        }
+    }
+
+    /**
+     * Converts an XML expression file to the binary format, streaming
+     * through it so that files of any size can be converted.
+     *
+     * @param xmlFile
+     *            the name of the XML expression file
+     * @param binaryFile
+     *            the name of the binary file to write
+     * @throws IOException
+     *             if reading or writing fails
+     * @throws XMLStreamException
+     *             if the XML file is not well-formed
+     * @requires [xmlFile is a well-formed XML arithmetic expression file]
+     * @ensures [binaryFile holds the binary encoding of the expression]
+     */
+    public static void convert(String xmlFile, String binaryFile)
+            throws IOException, XMLStreamException {
+        assert xmlFile != null : "Violation of: xmlFile is not null";
+        assert binaryFile != null : "Violation of: binaryFile is not null";
+
+        try (InputStream input = new BufferedInputStream(new FileInputStream(xmlFile));
+                OutputStream out = new BufferedOutputStream(
+                        new FileOutputStream(binaryFile))) {
+            out.write(MAGIC);
+            XMLStreamReader reader = XML_INPUT.createXMLStreamReader(input);
+            try {
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT
+                            && reader.getLocalName().equals("number")) {
+                        writeNumber(out, reader.getAttributeValue(null, "value"));
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        String label = reader.getLocalName();
+                        if (label.equals("plus")) {
+                            writeVarint(out, PLUS);
+                        } else if (label.equals("minus")) {
+                            writeVarint(out, MINUS);
+                        } else if (label.equals("times")) {
+                            writeVarint(out, TIMES);
+                        } else if (label.equals("divide")) {
+                            writeVarint(out, DIVIDE);
+                        } else if (!label.equals("number")
+                                && !label.equals("expression")) {
+                            Reporter.fatalErrorToConsole("Unknown operator: " + label);
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Reader of a binary expression file, returning its nodes in post-order.
+     * The file is memory-mapped, one window of at most {@code MAP_WINDOW}
+     * bytes at a time.
+     */
+    public static final class Reader implements Closeable {
+
+        /**
+         * The file.
+         */
+        private final FileChannel channel;
+
+        /**
+         * Size of the file.
+         */
+        private final long size;
+
+        /**
+         * Position in the file of the start of the current window.
+         */
+        private long windowStart;
+
+        /**
+         * The current window.
+         */
+        private MappedByteBuffer window;
+
+        /**
+         * Digits of the last literal read, with its sign, if any.
+         */
+        private char[] digits = new char[INITIAL_DIGITS];
+
+        /**
+         * Number of characters of the last literal read.
+         */
+        private int digitCount;
+
+        /**
+         * Opens a binary expression file.
+         *
+         * @param file
+         *            the name of the binary expression file
+         * @throws IOException
+         *             if the file cannot be read or is not a binary
+         *             expression file
+         */
+        public Reader(String file) throws IOException {
+            this.channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ);
+            this.size = this.channel.size();
+            this.windowStart = 0;
+            this.map();
+            boolean valid = this.size >= MAGIC.length;
+            for (int i = 0; valid && i < MAGIC.length; i++) {
+                valid = this.nextByte() == MAGIC[i];
+            }
+            if (!valid) {
+                this.channel.close();
+                throw new IOException(file + " is not a binary expression file");
+            }
+        }
+
+        /**
+         * Maps the window starting at {@code windowStart}.
+         *
+         * @throws IOException
+         *             if mapping fails
+         */
+        private void map() throws IOException {
+            long length = Math.min(MAP_WINDOW, this.size - this.windowStart);
+            this.window = this.channel.map(FileChannel.MapMode.READ_ONLY,
+                    this.windowStart, length);
+        }
+
+        /**
+         * Returns the next byte of the file.
+         *
+         * @return the next byte, as an unsigned value
+         * @throws IOException
+         *             if the file ends or mapping fails
+         */
+        private int nextByte() throws IOException {
+            if (!this.window.hasRemaining()) {
+                this.windowStart += this.window.capacity();
+                if (this.windowStart >= this.size) {
+                    throw new IOException("Unexpected end of binary expression file");
+                }
+                this.map();
+            }
+            return this.window.get() & BYTE_MASK;
+        }
+
+        /**
+         * Returns the next varint of the file.
+         *
+         * @return the value of the varint
+         * @throws IOException
+         *             if the file ends or mapping fails
+         */
+        private int nextVarint() throws IOException {
+            int value = 0;
+            int shift = 0;
+            int b = this.nextByte();
+            while ((b & CONTINUATION) != 0) {
+                value |= (b & (CONTINUATION - 1)) << shift;
+                shift += VARINT_BITS;
+                b = this.nextByte();
+            }
+            return value | (b << shift);
+        }
+
+        /**
+         * Reports whether there are nodes left to read.
+         *
+         * @return true iff there are nodes left
+         */
+        public boolean hasNext() {
+            return this.windowStart + this.window.position() < this.size;
+        }
+
+        /**
+         * Reads the next node and returns its label: "number", "plus",
+         * "minus", "times", or "divide". For a number, its value is then
+         * available from {@code value}.
+         *
+         * @return the label of the next node
+         * @throws IOException
+         *             if the file is malformed or cannot be read
+         * @requires hasNext()
+         */
+        public String next() throws IOException {
+            int opcode = this.nextVarint();
+            if (opcode < 0 || opcode >= LABELS.length) {
+                throw new IOException("Invalid opcode " + opcode);
+            }
+            if (opcode == NUMBER || opcode == NEGATIVE_NUMBER) {
+                int length = this.nextVarint();
+                int sign = 0;
+                if (opcode == NEGATIVE_NUMBER) {
+                    sign = 1;
+                }
+                if (this.digits.length < sign + length) {
+                    this.digits = new char[2 * (sign + length)];
+                }
+                this.digits[0] = '-';
+                for (int i = 0; i < length; i += 2) {
+                    int b = this.nextByte();
+                    this.digits[sign + i] = (char) ('0' + (b >>> NIBBLE_BITS));
+                    if (i + 1 < length) {
+                        this.digits[sign + i + 1] = (char) ('0' + (b & NIBBLE));
+                    }
+                }
+                this.digitCount = sign + length;
+            }
+            return LABELS[opcode];
+        }
+
+        /**
+         * Returns the value of the number node last returned by {@code next},
+         * as in its {@code value} attribute.
+         *
+         * @return the value, in decimal
+         * @requires [the last node returned by next was a number]
+         */
+        public String value() {
+            return new String(this.digits, 0, this.digitCount);
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.channel.close();
+        }
+
+    }
+
+    /**
+     * Main method: converts the XML expression file named by the first
+     * argument into the binary file named by the second.
+     *
+     * @param args
+     *            the command line arguments: the XML file name and the
+     *            binary file name
+     * @throws IOException
+     *             if reading or writing fails
+     * @throws XMLStreamException
+     *             if the XML file is not well-formed
+     */
+    public static void main(String[] args) throws IOException, XMLStreamException {
+        if (args.length != 2) {
+            System.err.println("Usage: XMLTreeExpressionBinary input.xml output.xeb");
+            return;
+        }
+        convert(args[0], args[1]);
+    }
+
+}
@@ -0,0 +1,441 @@
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import components.xmltree.XMLTree;
+
+/**
+ * An XML arithmetic expression as a directed acyclic graph in which
+ * structurally identical subtrees are shared, so that each distinct
+ * subexpression is evaluated once.
+ * <p>
+ * Nodes are numbered from 0 in an order in which every operator comes after
+ * both of its operands, so evaluators can fill an array of values in one pass
+ * from 0 to {@code root()}. While the graph is built (hash-consing each node
+ * on its label and operands), leading zeros are removed from number literals
+ * and the identities {@code x + 0},
+ * {@code 0 + x}, {@code x - 0}, {@code x * 1}, {@code 1 * x}, and
+ * {@code x / 1} are folded to {@code x}. These hold for both {@code int} and
+ * {@code NaturalNumber} evaluation and never drop a subexpression, so errors
+ * such as division by zero are still reported.
+ * </p>
+ *
+ * @author S. Park
+ *
+ */
+public final class XMLTreeExpressionDag {
+
+    /**
+     * Initial capacity of the node arrays.
+     */
+    private static final int INITIAL_CAPACITY = 32;
+
+    /**
+     * Factory for the streaming readers used to build graphs directly from
+     * XML; DTDs are not supported, so no external entities are ever fetched.
+     */
+    private static final XMLInputFactory XML_INPUT = XMLInputFactory.newInstance();
+
+    static {
+        XML_INPUT.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    }
+
+    /**
+     * Label of each node: "number" or the operator.
+     */
+    private String[] labels = new String[INITIAL_CAPACITY];
+
+    /**
+     * Value attribute of each number node, without leading zeros.
+     */
+    private String[] values = new String[INITIAL_CAPACITY];
+
+    /**
+     * Left and right operand of each operator node.
+     */
+    private int[] lefts = new int[INITIAL_CAPACITY], rights = new int[INITIAL_CAPACITY];
+
+    /**
+     * Number of nodes.
+     */
+    private int size = 0;
+
+    /**
+     * Id of the root.
+     */
+    private int root;
+
+    /**
+     * Number of nodes in the tree the graph was built from.
+     */
+    private int treeSize = 0;
+
+    /**
+     * Number nodes, by value.
+     */
+    private final Map<String, Integer> numbers = new HashMap<>();
+
+    /**
+     * Operator nodes, by label and then by operands packed into a
+     * {@code long}.
+     */
+    private final Map<String, Map<Long, Integer>> operators = new HashMap<>();
+
+    /**
+     * Ids of the subexpressions not yet consumed by their operator, while the
+     * graph is built.
+     */
+    private int[] pending = new int[INITIAL_CAPACITY];
+
+    /**
+     * Number of pending ids.
+     */
+    private int pendingCount = 0;
+
+    /**
+     * Builds the graph for the given expression.
+     *
+     * @param exp
+     *            the {@code XMLTree} representing the expression
+     * @requires <pre>
+     * [exp is a subtree of a well-formed XML arithmetic expression]  and
+     *  [the label of the root of exp is not "expression"]
+     * </pre>
+     */
+    public XMLTreeExpressionDag(XMLTree exp) {
+        assert exp != null : "Violation of: exp is not null";
+
+        /*
+         * Post-order, so operands get their ids before their operator
+         */
+        XMLTreePostOrder nodes = new XMLTreePostOrder(exp);
+        while (nodes.hasNext()) {
+            XMLTree node = nodes.next();
+            String label = node.label();
+            if (label.equals("number")) {
+                this.visitNumber(node.attributeValue("value"));
+            } else {
+                this.visitOperator(label);
+            }
+        }
+        this.finish();
+    }
+
+    /**
+     * Builds the graph for the expression document read from {@code input},
+     * streaming through it without building an {@code XMLTree}: closing tags
+     * arrive in post-order, just as the tree walk visits nodes.
+     *
+     * @param input
+     *            the XML expression document; not closed
+     * @throws XMLStreamException
+     *             if the document is not well-formed XML
+     * @requires [input holds a well-formed XML arithmetic expression]
+     */
+    public XMLTreeExpressionDag(InputStream input) throws XMLStreamException {
+        assert input != null : "Violation of: input is not null";
+
+        XMLStreamReader reader = XML_INPUT.createXMLStreamReader(input);
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT
+                        && reader.getLocalName().equals("number")) {
+                    this.visitNumber(reader.getAttributeValue(null, "value"));
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    String label = reader.getLocalName();
+                    if (!label.equals("number") && !label.equals("expression")) {
+                        this.visitOperator(label);
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        this.finish();
+    }
+
+    /**
+     * Records a number leaf, in post-order.
+     *
+     * @param value
+     *            the value attribute, or {@code null} if it is missing
+     */
+    private void visitNumber(String value) {
+        this.push(this.number(value));
+    }
+
+    /**
+     * Records an operator node, in post-order, taking its operands from the
+     * pending subexpressions.
+     *
+     * @param label
+     *            the label of the operator
+     */
+    private void visitOperator(String label) {
+        int right = this.pending[this.pendingCount - 1];
+        int left = this.pending[this.pendingCount - 2];
+        this.pendingCount -= 2;
+        this.push(this.operator(label, left, right));
+    }
+
+    /**
+     * Pushes the id of a visited subexpression onto the pending ids.
+     *
+     * @param id
+     *            the id of the subexpression
+     */
+    private void push(int id) {
+        if (this.pendingCount == this.pending.length) {
+            this.pending = Arrays.copyOf(this.pending, 2 * this.pendingCount);
+        }
+        this.pending[this.pendingCount] = id;
+        this.pendingCount++;
+        this.treeSize++;
+    }
+
+    /**
+     * Completes the graph once every node has been visited.
+     */
+    private void finish() {
+        this.root = this.pending[0];
+        this.pending = null;
+        this.numbers.clear();
+        this.operators.clear();
+    }
+
+    /**
+     * Appends a node.
+     *
+     * @param label
+     *            the label of the node
+     * @param value
+     *            the value of a number node, or {@code null}
+     * @param left
+     *            the left operand of an operator node
+     * @param right
+     *            the right operand of an operator node
+     * @return the id of the new node
+     */
+    private int add(String label, String value, int left, int right) {
+        if (this.size == this.labels.length) {
+            int capacity = 2 * this.size;
+            this.labels = Arrays.copyOf(this.labels, capacity);
+            this.values = Arrays.copyOf(this.values, capacity);
+            this.lefts = Arrays.copyOf(this.lefts, capacity);
+            this.rights = Arrays.copyOf(this.rights, capacity);
+        }
+        this.labels[this.size] = label;
+        this.values[this.size] = value;
+        this.lefts[this.size] = left;
+        this.rights[this.size] = right;
+        this.size++;
+        return this.size - 1;
+    }
+
+    /**
+     * Returns the id of the number node with the given value, adding it if
+     * there is none yet.
+     *
+     * @param value
+     *            the value attribute, or {@code null} if it is missing
+     * @return the id of the node
+     */
+    private int number(String value) {
+        String normalized = value;
+        if (value != null) {
+            int start = 0;
+            while (start < value.length() - 1 && value.charAt(start) == '0') {
+                start++;
+            }
+            normalized = value.substring(start);
+        }
+        Integer id = this.numbers.get(normalized);
+        if (id == null) {
+            id = this.add("number", normalized, -1, -1);
+            this.numbers.put(normalized, id);
+        }
+        return id;
+    }
+
+    /**
+     * Reports whether node {@code id} is the number literal {@code value}.
+     *
+     * @param id
+     *            the id of the node
+     * @param value
+     *            the literal, without leading zeros
+     * @return true iff node id is a number node with the given value
+     */
+    private boolean isLiteral(int id, String value) {
+        return this.labels[id].equals("number") && value.equals(this.values[id]);
+    }
+
+    /**
+     * Returns the id of the node for operator {@code label} applied to nodes
+     * {@code left} and {@code right}, after folding identities, adding the
+     * node if there is none yet.
+     *
+     * @param label
+     *            the label of the operator
+     * @param left
+     *            the id of the left operand
+     * @param right
+     *            the id of the right operand
+     * @return the id of the node
+     */
+    private int operator(String label, int left, int right) {
+        int id;
+        if ((label.equals("plus") || label.equals("minus"))
+                && this.isLiteral(right, "0")) {
+            id = left;
+        } else if (label.equals("plus") && this.isLiteral(left, "0")) {
+            id = right;
+        } else if ((label.equals("times") || label.equals("divide"))
+                && this.isLiteral(right, "1")) {
+            id = left;
+        } else if (label.equals("times") && this.isLiteral(left, "1")) {
+            id = right;
+        } else {
+            Map<Long, Integer> byOperands = this.operators.get(label);
+            if (byOperands == null) {
+                byOperands = new HashMap<>();
+                this.operators.put(label, byOperands);
+            }
+            Long key = ((long) left << Integer.SIZE) | right;
+            Integer existing = byOperands.get(key);
+            if (existing == null) {
+                id = this.add(label, null, left, right);
+                byOperands.put(key, id);
+            } else {
+                id = existing;
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Returns the number of nodes.
+     *
+     * @return the number of distinct nodes in the graph
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the id of the root. Nodes after the root, if any, are not
+     * needed to evaluate it (they were made redundant by folding).
+     *
+     * @return the id of the root
+     */
+    public int root() {
+        return this.root;
+    }
+
+    /**
+     * Returns the number of nodes of the tree the graph was built from.
+     *
+     * @return the number of nodes of the original tree
+     */
+    public int treeSize() {
+        return this.treeSize;
+    }
+
+    /**
+     * Reports whether node {@code id} is a number.
+     *
+     * @param id
+     *            the id of the node
+     * @return true iff node id is a number node
+     * @requires 0 <= id < size()
+     */
+    public boolean isNumber(int id) {
+        assert 0 <= id && id < this.size : "Violation of: 0 <= id < size()";
+
+        return this.labels[id].equals("number");
+    }
+
+    /**
+     * Returns the value attribute of number node {@code id}, without leading
+     * zeros.
+     *
+     * @param id
+     *            the id of the node
+     * @return the value, or {@code null} if the attribute was missing
+     * @requires 0 <= id < size() and isNumber(id)
+     */
+    public String value(int id) {
+        assert this.isNumber(id) : "Violation of: isNumber(id)";
+
+        return this.values[id];
+    }
+
+    /**
+     * Returns the label of node {@code id}: "number" or the operator.
+     *
+     * @param id
+     *            the id of the node
+     * @return the label of node id
+     * @requires 0 <= id < size()
+     */
+    public String label(int id) {
+        assert 0 <= id && id < this.size : "Violation of: 0 <= id < size()";
+
+        return this.labels[id];
+    }
+
+    /**
+     * Returns the id of the left operand of operator node {@code id}.
+     *
+     * @param id
+     *            the id of the node
+     * @return the id of the left operand, which is less than id
+     * @requires 0 <= id < size() and not isNumber(id)
+     */
+    public int left(int id) {
+        assert !this.isNumber(id) : "Violation of: not isNumber(id)";
+
+        return this.lefts[id];
+    }
+
+    /**
+     * Returns the id of the right operand of operator node {@code id}.
+     *
+     * @param id
+     *            the id of the node
+     * @return the id of the right operand, which is less than id
+     * @requires 0 <= id < size() and not isNumber(id)
+     */
+    public int right(int id) {
+        assert !this.isNumber(id) : "Violation of: not isNumber(id)";
+
+        return this.rights[id];
+    }
+
+    /**
+     * Returns, for each node, the number of times its value is used: once as
+     * an operand for each operator referring to it, plus once for the root.
+     * Evaluators can use it to release or reuse values after their last use.
+     *
+     * @return the use counts, indexed by node id
+     */
+    public int[] useCounts() {
+        int[] uses = new int[this.size];
+        for (int id = 0; id < this.size; id++) {
+            if (!this.labels[id].equals("number")) {
+                uses[this.lefts[id]]++;
+                uses[this.rights[id]]++;
+            }
+        }
+        uses[this.root]++;
+        return uses;
+    }
+
+}
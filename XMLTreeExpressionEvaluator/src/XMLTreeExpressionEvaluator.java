@@ -0,0 +1,371 @@
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import components.naturalnumber.NaturalNumber;
+import components.naturalnumber.NaturalNumber1L;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+import components.utilities.Reporter;
+import components.xmltree.XMLTree;
+
+/**
+ * Program to evaluate XMLTree expressions of either kind, {@code int} or
+ * {@code NaturalNumber}, with one evaluator.
+ * <p>
+ * Values are computed in {@code long} with overflow checks; only a value that
+ * does not fit in a {@code long} is promoted to a {@code NaturalNumber}, and a
+ * {@code NaturalNumber} result that fits in a {@code long} again is demoted.
+ * Small expressions therefore run at primitive speed, and large ones get
+ * exact results instead of silently overflowing. Negative values are allowed
+ * as long as they fit in a {@code long}; a negative value that would have to
+ * be combined with a promoted one, or a negative result too large for a
+ * {@code long}, is reported as a fatal error, as is division by zero.
+ * </p>
+ *
+ * @author S. Park
+ *
+ */
+public final class XMLTreeExpressionEvaluator {
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private XMLTreeExpressionEvaluator() {
+    }
+
+    /**
+     * Factory for the streaming readers used by {@code evaluateFile}; DTDs
+     * are not supported, so no external entities are ever fetched.
+     */
+    private static final XMLInputFactory XML_INPUT = XMLInputFactory.newInstance();
+
+    static {
+        XML_INPUT.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    }
+
+    /**
+     * Largest {@code long}, as a {@code NaturalNumber}.
+     */
+    private static final NaturalNumber LONG_MAX = new NaturalNumber1L(
+            Long.toString(Long.MAX_VALUE));
+
+    /**
+     * Stack of values during evaluation, each held either as a {@code long}
+     * or, if it does not fit in one, as a {@code NaturalNumber}.
+     */
+    private static final class ValueStack {
+
+        /**
+         * Initial capacity.
+         */
+        private static final int INITIAL_CAPACITY = 32;
+
+        /**
+         * The values that fit in a {@code long}.
+         */
+        private long[] smalls = new long[INITIAL_CAPACITY];
+
+        /**
+         * The values that do not fit in a {@code long}, or {@code null} where
+         * the value is in {@code smalls}.
+         */
+        private NaturalNumber[] bigs = new NaturalNumber[INITIAL_CAPACITY];
+
+        /**
+         * Number of values.
+         */
+        private int count = 0;
+
+        /**
+         * Pushes a {@code long} value.
+         *
+         * @param value
+         *            the value
+         */
+        private void push(long value) {
+            if (this.count == this.smalls.length) {
+                this.smalls = Arrays.copyOf(this.smalls, 2 * this.count);
+                this.bigs = Arrays.copyOf(this.bigs, 2 * this.count);
+            }
+            this.smalls[this.count] = value;
+            this.bigs[this.count] = null;
+            this.count++;
+        }
+
+        /**
+         * Pushes a {@code NaturalNumber} value, as a {@code long} if it fits.
+         *
+         * @param value
+         *            the value, which the stack takes ownership of
+         */
+        private void push(NaturalNumber value) {
+            if (value.compareTo(LONG_MAX) <= 0) {
+                this.push(Long.parseLong(value.toString()));
+            } else {
+                this.push(0L);
+                this.bigs[this.count - 1] = value;
+            }
+        }
+
+        /**
+         * Pushes the value of a number literal.
+         *
+         * @param value
+         *            the value attribute, or {@code null} if it is missing
+         */
+        void pushLiteral(String value) {
+            Reporter.assertElseFatalError(value != null,
+                    "Missing value attribute in <number> node.");
+            try {
+                this.push(Long.parseLong(value));
+            } catch (NumberFormatException e) {
+                Reporter.assertElseFatalError(value.matches("[0-9]+"),
+                        "Invalid number: " + value);
+                this.push(new NaturalNumber1L(value));
+            }
+        }
+
+        /**
+         * Returns the value at {@code index} as a {@code NaturalNumber}.
+         *
+         * @param index
+         *            the position of the value
+         * @return the value, which the caller may modify
+         */
+        private NaturalNumber natural(int index) {
+            NaturalNumber result = this.bigs[index];
+            if (result == null) {
+                long value = this.smalls[index];
+                Reporter.assertElseFatalError(value >= 0, "Negative value " + value
+                        + " cannot be combined with a value beyond the range of long.");
+                result = new NaturalNumber1L(Long.toString(value));
+            }
+            this.bigs[index] = null;
+            return result;
+        }
+
+        /**
+         * Applies the operator labeled {@code operator} to the top two values,
+         * replacing them with the result.
+         *
+         * @param operator
+         *            the label of the operator node
+         * @requires [there are at least two values]
+         */
+        void apply(String operator) {
+            this.count--;
+            int right = this.count;
+            int left = this.count - 1;
+            boolean done = false;
+            if (this.bigs[left] == null && this.bigs[right] == null) {
+                long x = this.smalls[left];
+                long y = this.smalls[right];
+                try {
+                    if (operator.equals("plus")) {
+                        this.smalls[left] = Math.addExact(x, y);
+                    } else if (operator.equals("minus")) {
+                        this.smalls[left] = Math.subtractExact(x, y);
+                    } else if (operator.equals("times")) {
+                        this.smalls[left] = Math.multiplyExact(x, y);
+                    } else if (operator.equals("divide")) {
+                        Reporter.assertElseFatalError(y != 0,
+                                "Division by zero is not allowed.");
+                        if (x == Long.MIN_VALUE && y == -1) {
+                            throw new ArithmeticException("long overflow");
+                        }
+                        this.smalls[left] = x / y;
+                    } else {
+                        Reporter.fatalErrorToConsole("Unknown operator: " + operator);
+                    }
+                    done = true;
+                } catch (ArithmeticException e) {
+                    /*
+                     * Overflow: redo the operation with NaturalNumber below
+                     */
+                    done = false;
+                }
+            }
+            if (!done) {
+                NaturalNumber x = this.natural(left);
+                NaturalNumber y = this.natural(right);
+                this.count--;
+                if (operator.equals("plus")) {
+                    x.add(y);
+                    this.push(x);
+                } else if (operator.equals("minus")) {
+                    if (x.compareTo(y) >= 0) {
+                        x.subtract(y);
+                        this.push(x);
+                    } else {
+                        y.subtract(x);
+                        Reporter.assertElseFatalError(y.compareTo(LONG_MAX) <= 0,
+                                "Cannot subtract: negative result is beyond the range of long.");
+                        this.push(-Long.parseLong(y.toString()));
+                    }
+                } else if (operator.equals("times")) {
+                    x.multiply(y);
+                    this.push(x);
+                } else if (operator.equals("divide")) {
+                    Reporter.assertElseFatalError(!y.isZero(),
+                            "Division by zero is not allowed.");
+                    x.divide(y);
+                    this.push(x);
+                } else {
+                    Reporter.fatalErrorToConsole("Unknown operator: " + operator);
+                }
+            }
+        }
+
+        /**
+         * Returns the only value, in decimal.
+         *
+         * @return the value
+         * @requires [there is exactly one value]
+         */
+        String result() {
+            String result;
+            if (this.bigs[0] == null) {
+                result = Long.toString(this.smalls[0]);
+            } else {
+                result = this.bigs[0].toString();
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * Evaluate the given expression.
+     *
+     * @param exp
+     *            the {@code XMLTree} representing the expression
+     * @return the value of the expression, in decimal
+     * @requires <pre>
+     * [exp is a subtree of a well-formed XML arithmetic expression]  and
+     *  [the label of the root of exp is not "expression"]
+     * </pre>
+     * @ensures evaluate = [the value of the expression]
+     */
+    public static String evaluate(XMLTree exp) {
+        assert exp != null : "Violation of: exp is not null";
+
+        ValueStack values = new ValueStack();
+        XMLTreePostOrder nodes = new XMLTreePostOrder(exp);
+        while (nodes.hasNext()) {
+            XMLTree node = nodes.next();
+            if (node.label().equals("number")) {
+                values.pushLiteral(node.attributeValue("value"));
+            } else {
+                values.apply(node.label());
+            }
+        }
+        return values.result();
+    }
+
+    /**
+     * Evaluates the expression in the given XML file by streaming through it,
+     * without building an {@code XMLTree}.
+     *
+     * @param file
+     *            the name of the expression XML file
+     * @return the value of the expression, in decimal
+     * @requires [file is a well-formed XML arithmetic expression file]
+     * @ensures evaluateFile = [the value of the expression in file]
+     */
+    public static String evaluateFile(String file) {
+        assert file != null : "Violation of: file is not null";
+
+        ValueStack values = new ValueStack();
+        try (InputStream input = new BufferedInputStream(new FileInputStream(file))) {
+            XMLStreamReader reader = XML_INPUT.createXMLStreamReader(input);
+            try {
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT
+                            && reader.getLocalName().equals("number")) {
+                        values.pushLiteral(reader.getAttributeValue(null, "value"));
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        String label = reader.getLocalName();
+                        if (!label.equals("number") && !label.equals("expression")) {
+                            values.apply(label);
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | XMLStreamException e) {
+            Reporter.fatalErrorToConsole(
+                    "Error reading expression file " + file + ": " + e.getMessage());
+        }
+        return values.result();
+    }
+
+    /**
+     * Evaluates the expression in the given binary expression file (see
+     * {@code XMLTreeExpressionBinary}), reading it through a memory mapping.
+     *
+     * @param file
+     *            the name of the binary expression file
+     * @return the value of the expression, in decimal
+     * @requires [file is a binary expression file]
+     * @ensures evaluateBinary = [the value of the expression in file]
+     */
+    public static String evaluateBinary(String file) {
+        assert file != null : "Violation of: file is not null";
+
+        ValueStack values = new ValueStack();
+        try (XMLTreeExpressionBinary.Reader reader = new XMLTreeExpressionBinary.Reader(
+                file)) {
+            while (reader.hasNext()) {
+                String label = reader.next();
+                if (label.equals("number")) {
+                    values.pushLiteral(reader.value());
+                } else {
+                    values.apply(label);
+                }
+            }
+        } catch (IOException e) {
+            Reporter.fatalErrorToConsole("Error reading binary expression file "
+                    + file + ": " + e.getMessage());
+        }
+        return values.result();
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        SimpleReader in = new SimpleReader1L();
+        SimpleWriter out = new SimpleWriter1L();
+
+        out.print("Enter the name of an expression XML file: ");
+        String file = in.nextLine();
+        while (!file.equals("")) {
+            if (file.endsWith(".xeb")) {
+                out.println(evaluateBinary(file));
+            } else {
+                out.println(evaluateFile(file));
+            }
+            out.print("Enter the name of an expression XML file: ");
+            file = in.nextLine();
+        }
+
+        in.close();
+        out.close();
+    }
+
+}
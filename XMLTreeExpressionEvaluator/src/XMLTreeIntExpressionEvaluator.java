@@ -1,9 +1,23 @@
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import components.map.Map;
+import components.map.Map1L;
 import components.simplereader.SimpleReader;
 import components.simplereader.SimpleReader1L;
 import components.simplewriter.SimpleWriter;
 import components.simplewriter.SimpleWriter1L;
+import components.utilities.Reporter;
 import components.xmltree.XMLTree;
-import components.xmltree.XMLTree1;
 
 /**
  * Program to evaluate XMLTree expressions of {@code int}.
@@ -19,6 +33,355 @@ public final class XMLTreeIntExpressionEvaluator {
     private XMLTreeIntExpressionEvaluator() {
     }
 
+    /**
+     * Opcodes of compiled expressions. {@code PUSH} is followed by an index
+     * into the constant pool; the operators pop the right and then the left
+     * operand and push the result.
+     */
+    private static final int PUSH = 0, PLUS = 1, MINUS = 2, TIMES = 3,
+            DIVIDE = 4;
+
+    /**
+     * Factory for the streaming readers used by {@code evaluateFile}; DTDs
+     * are not supported, so no external entities are ever fetched.
+     */
+    private static final XMLInputFactory XML_INPUT = XMLInputFactory.newInstance();
+
+    static {
+        XML_INPUT.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    }
+
+    /**
+     * Initial capacity of the value stacks.
+     */
+    private static final int INITIAL_CAPACITY = 32;
+
+    /**
+     * An expression compiled to postfix code for a stack machine.
+     */
+    public static final class Program {
+
+        /**
+         * Opcodes and their operands, in postfix order.
+         */
+        private final int[] code;
+
+        /**
+         * Values of the {@code number} leaves.
+         */
+        private final int[] constants;
+
+        /**
+         * Largest number of values on the stack during execution.
+         */
+        private final int maxDepth;
+
+        /**
+         * Constructor.
+         *
+         * @param code
+         *            opcodes and their operands, in postfix order
+         * @param constants
+         *            values of the number leaves
+         * @param maxDepth
+         *            largest number of values on the stack during execution
+         */
+        private Program(int[] code, int[] constants, int maxDepth) {
+            this.code = code;
+            this.constants = constants;
+            this.maxDepth = maxDepth;
+        }
+
+    }
+
+    /**
+     * Largest file, in bytes, whose compiled program {@code main} keeps for
+     * reuse; larger files are streamed through {@code evaluateFile} each
+     * time, since their programs would be proportional to their size.
+     */
+    private static final long MAX_CACHED_FILE_SIZE = 16L << 20;
+
+    /**
+     * A compiled program, with the modification time and size of the file it
+     * was compiled from.
+     */
+    private static final class CachedProgram {
+
+        /**
+         * The compiled program.
+         */
+        private final Program program;
+
+        /**
+         * Modification time of the file when it was compiled.
+         */
+        private final long modified;
+
+        /**
+         * Size of the file when it was compiled.
+         */
+        private final long size;
+
+        /**
+         * Constructor.
+         *
+         * @param program
+         *            the compiled program
+         * @param modified
+         *            modification time of the file
+         * @param size
+         *            size of the file
+         */
+        CachedProgram(Program program, long modified, long size) {
+            this.program = program;
+            this.modified = modified;
+            this.size = size;
+        }
+
+    }
+
+    /**
+     * Growable buffer of {@code int}s used while compiling.
+     */
+    private static final class IntBuffer {
+
+        /**
+         * Initial capacity.
+         */
+        private static final int INITIAL_CAPACITY = 16;
+
+        /**
+         * The values; only the first {@code length} are in use.
+         */
+        private int[] values = new int[INITIAL_CAPACITY];
+
+        /**
+         * Number of values in use.
+         */
+        private int length = 0;
+
+        /**
+         * Appends {@code x}.
+         *
+         * @param x
+         *            the value to append
+         */
+        void add(int x) {
+            if (this.length == this.values.length) {
+                int[] larger = new int[2 * this.values.length];
+                System.arraycopy(this.values, 0, larger, 0, this.length);
+                this.values = larger;
+            }
+            this.values[this.length] = x;
+            this.length++;
+        }
+
+        /**
+         * Returns the values in use.
+         *
+         * @return the values in use, in order
+         */
+        int[] toArray() {
+            int[] result = new int[this.length];
+            System.arraycopy(this.values, 0, result, 0, this.length);
+            return result;
+        }
+
+    }
+
+    /**
+     * Compiler of an expression to a {@code Program}, fed the nodes of the
+     * expression in post-order, from a tree or a stream.
+     */
+    private static final class Compiler {
+
+        /**
+         * Code emitted so far.
+         */
+        private final IntBuffer code = new IntBuffer();
+
+        /**
+         * Constants seen so far.
+         */
+        private final IntBuffer constants = new IntBuffer();
+
+        /**
+         * Number of values on the stack after the code emitted so far.
+         */
+        private int depth = 0;
+
+        /**
+         * Largest value of {@code depth} so far.
+         */
+        private int maxDepth = 0;
+
+        /**
+         * Emits the code for a number leaf.
+         *
+         * @param value
+         *            the value attribute of the leaf
+         */
+        void number(String value) {
+            this.code.add(PUSH);
+            this.code.add(this.constants.length);
+            this.constants.add(Integer.parseInt(value));
+            this.depth++;
+            this.maxDepth = Math.max(this.maxDepth, this.depth);
+        }
+
+        /**
+         * Emits the code for an operator, whose operands' code has already
+         * been emitted.
+         *
+         * @param label
+         *            the label of the operator
+         */
+        void operator(String label) {
+            if (label.equals("plus")) {
+                this.code.add(PLUS);
+            } else if (label.equals("minus")) {
+                this.code.add(MINUS);
+            } else if (label.equals("times")) {
+                this.code.add(TIMES);
+            } else if (label.equals("divide")) {
+                this.code.add(DIVIDE);
+            } else {
+                /*
+                 * Emitting nothing would leave the code silently wrong
+                 */
+                Reporter.fatalErrorToConsole("Unknown operator: " + label);
+            }
+            this.depth--;
+        }
+
+        /**
+         * Returns the compiled program.
+         *
+         * @return the program for the nodes fed so far
+         */
+        Program program() {
+            return new Program(this.code.toArray(), this.constants.toArray(),
+                    this.maxDepth);
+        }
+
+    }
+
+    /**
+     * Compiles the given expression, so that it can be evaluated repeatedly
+     * with {@code execute} without walking the tree again.
+     *
+     * @param exp
+     *            the {@code XMLTree} representing the expression
+     * @return the compiled expression
+     * @requires <pre>
+     * [exp is a subtree of a well-formed XML arithmetic expression]  and
+     *  [the label of the root of exp is not "expression"]
+     * </pre>
+     * @ensures execute(compile) = [the value of the expression]
+     */
+    public static Program compile(XMLTree exp) {
+        assert exp != null : "Violation of: exp is not null";
+
+        Compiler compiler = new Compiler();
+        XMLTreePostOrder nodes = new XMLTreePostOrder(exp);
+        while (nodes.hasNext()) {
+            XMLTree node = nodes.next();
+            String label = node.label();
+            if (label.equals("number")) {
+                compiler.number(node.attributeValue("value"));
+            } else {
+                compiler.operator(label);
+            }
+        }
+        return compiler.program();
+    }
+
+    /**
+     * Compiles the expression in the given XML file by streaming through it,
+     * without building an {@code XMLTree}, so that it can be evaluated
+     * repeatedly with {@code execute} without reading the file again.
+     *
+     * @param file
+     *            the name of the expression XML file
+     * @return the compiled expression
+     * @requires [file is a well-formed XML arithmetic expression file]
+     * @ensures execute(compileFile) = [the value of the expression in file]
+     */
+    public static Program compileFile(String file) {
+        assert file != null : "Violation of: file is not null";
+
+        Compiler compiler = new Compiler();
+        try (InputStream input = new BufferedInputStream(new FileInputStream(file))) {
+            XMLStreamReader reader = XML_INPUT.createXMLStreamReader(input);
+            try {
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT
+                            && reader.getLocalName().equals("number")) {
+                        compiler.number(reader.getAttributeValue(null, "value"));
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        String label = reader.getLocalName();
+                        if (!label.equals("number") && !label.equals("expression")) {
+                            compiler.operator(label);
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | XMLStreamException e) {
+            Reporter.fatalErrorToConsole(
+                    "Error reading expression file " + file + ": " + e.getMessage());
+        }
+        return compiler.program();
+    }
+
+    /**
+     * Evaluates a compiled expression.
+     *
+     * @param program
+     *            the compiled expression
+     * @return the value of the expression
+     * @ensures execute = [the value of the expression program was compiled
+     *          from]
+     */
+    public static int execute(Program program) {
+        assert program != null : "Violation of: program is not null";
+
+        int[] code = program.code;
+        int[] constants = program.constants;
+        int[] stack = new int[program.maxDepth];
+        int top = -1;
+        int pc = 0;
+        while (pc < code.length) {
+            int opcode = code[pc];
+            pc++;
+            if (opcode == PUSH) {
+                top++;
+                stack[top] = constants[code[pc]];
+                pc++;
+            } else {
+                int right = stack[top];
+                top--;
+                switch (opcode) {
+                    case PLUS:
+                        stack[top] += right;
+                        break;
+                    case MINUS:
+                        stack[top] -= right;
+                        break;
+                    case TIMES:
+                        stack[top] *= right;
+                        break;
+                    default:
+                        stack[top] /= right;
+                        break;
+                }
+            }
+        }
+        return stack[0];
+    }
+
     /**
      * Evaluate the given expression.
      *
@@ -31,34 +394,212 @@ public final class XMLTreeIntExpressionEvaluator {
      * </pre>
      * @ensures evaluate = [the value of the expression]
      */
-    private static int evaluate(XMLTree exp) {
+    public static int evaluate(XMLTree exp) {
         assert exp != null : "Violation of: exp is not null";
 
-        int result = 0;
-
         /*
-         * Base Case: The current node is a number
+         * Walk the tree in post-order with an explicit stack, so that deep
+         * trees cannot overflow the call stack; each operator combines the
+         * values of its two children, which are on top of the value stack
          */
-        if (exp.label().equals("number")) {
-            result = Integer.parseInt(exp.attributeValue("value"));
+        int[] values = new int[INITIAL_CAPACITY];
+        int count = 0;
+        XMLTreePostOrder nodes = new XMLTreePostOrder(exp);
+        while (nodes.hasNext()) {
+            XMLTree node = nodes.next();
+            String label = node.label();
+            if (label.equals("number")) {
+                if (count == values.length) {
+                    values = Arrays.copyOf(values, 2 * count);
+                }
+                values[count] = Integer.parseInt(node.attributeValue("value"));
+                count++;
+            } else {
+                count--;
+                values[count - 1] = combine(label, values[count - 1], values[count]);
+            }
+        }
+        int result = values[0];
+
+        return result;
+    }
+
+    /**
+     * Evaluates an expression given as an {@code XMLTreeExpressionDag},
+     * computing each distinct subexpression only once.
+     *
+     * @param dag
+     *            the expression, with identical subexpressions shared
+     * @return the value of the expression
+     * @ensures evaluateDag = [the value of the expression]
+     */
+    public static int evaluateDag(XMLTreeExpressionDag dag) {
+        assert dag != null : "Violation of: dag is not null";
+
+        int root = dag.root();
+        int[] values = new int[root + 1];
+        for (int id = 0; id <= root; id++) {
+            if (dag.isNumber(id)) {
+                values[id] = Integer.parseInt(dag.value(id));
+            } else {
+                values[id] = combine(dag.label(id), values[dag.left(id)],
+                        values[dag.right(id)]);
+            }
+        }
+        return values[root];
+    }
+
+    /**
+     * Returns the result of applying the operator labeled {@code operator} to
+     * {@code left} and {@code right}. Reports a fatal error for an unknown
+     * operator.
+     *
+     * @param operator
+     *            the label of the operator node
+     * @param left
+     *            the value of the left operand
+     * @param right
+     *            the value of the right operand
+     * @return the value of the operation
+     * @requires operator /= "divide" or right /= 0
+     * @ensures combine = [left operator right]
+     */
+    private static int combine(String operator, int left, int right) {
+        int result = 0;
+        if (operator.equals("plus")) {
+            result = left + right;
+        } else if (operator.equals("minus")) {
+            result = left - right;
+        } else if (operator.equals("times")) {
+            result = left * right;
+        } else if (operator.equals("divide")) {
+            result = left / right;
         } else {
-            /*
-             * Recursive Case: Evaluate left and right children
-             */
-            int left = evaluate(exp.child(0));
-            int right = evaluate(exp.child(1));
-
-            if (exp.label().equals("plus")) {
-                result = left + right;
-            } else if (exp.label().equals("minus")) {
-                result = left - right;
-            } else if (exp.label().equals("times")) {
-                result = left * right;
-            } else if (exp.label().equals("divide")) {
-                result = left / right;
+            Reporter.fatalErrorToConsole("Unknown operator: " + operator);
+        }
+        return result;
+    }
+
+    /**
+     * Evaluates the expression in the given XML file by streaming through it,
+     * without building an {@code XMLTree}: each {@code number} pushes its
+     * value, and each operator's closing tag replaces the top two values with
+     * its result. Memory use is proportional to the depth of the expression,
+     * not its size.
+     *
+     * @param file
+     *            the name of the expression XML file
+     * @return the value of the expression
+     * @requires [file is a well-formed XML arithmetic expression file]
+     * @ensures evaluateFile = [the value of the expression in file]
+     */
+    public static int evaluateFile(String file) {
+        assert file != null : "Violation of: file is not null";
+
+        int[] values = new int[INITIAL_CAPACITY];
+        int count = 0;
+        try (InputStream input = new BufferedInputStream(new FileInputStream(file))) {
+            XMLStreamReader reader = XML_INPUT.createXMLStreamReader(input);
+            try {
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT
+                            && reader.getLocalName().equals("number")) {
+                        if (count == values.length) {
+                            values = Arrays.copyOf(values, 2 * count);
+                        }
+                        values[count] = Integer
+                                .parseInt(reader.getAttributeValue(null, "value"));
+                        count++;
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        String label = reader.getLocalName();
+                        if (!label.equals("number") && !label.equals("expression")) {
+                            count--;
+                            values[count - 1] = combine(label, values[count - 1],
+                                    values[count]);
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | XMLStreamException e) {
+            Reporter.fatalErrorToConsole(
+                    "Error reading expression file " + file + ": " + e.getMessage());
+        }
+        return values[0];
+    }
+
+    /**
+     * Evaluates the expression in the given binary expression file (see
+     * {@code XMLTreeExpressionBinary}), reading it through a memory mapping.
+     *
+     * @param file
+     *            the name of the binary expression file
+     * @return the value of the expression
+     * @requires [file is a binary expression file]
+     * @ensures evaluateBinary = [the value of the expression in file]
+     */
+    public static int evaluateBinary(String file) {
+        assert file != null : "Violation of: file is not null";
+
+        int[] values = new int[INITIAL_CAPACITY];
+        int count = 0;
+        try (XMLTreeExpressionBinary.Reader reader = new XMLTreeExpressionBinary.Reader(
+                file)) {
+            while (reader.hasNext()) {
+                String label = reader.next();
+                if (label.equals("number")) {
+                    if (count == values.length) {
+                        values = Arrays.copyOf(values, 2 * count);
+                    }
+                    values[count] = Integer.parseInt(reader.value());
+                    count++;
+                } else {
+                    count--;
+                    values[count - 1] = combine(label, values[count - 1], values[count]);
+                }
             }
+        } catch (IOException e) {
+            Reporter.fatalErrorToConsole("Error reading binary expression file "
+                    + file + ": " + e.getMessage());
         }
+        return values[0];
+    }
 
+    /**
+     * Evaluates the expression in the given XML file, reusing the program
+     * compiled when it was last evaluated if the file's modification time and
+     * size have not changed since; a file edited in the meantime is compiled
+     * again.
+     *
+     * @param file
+     *            the name of the expression XML file
+     * @param cache
+     *            the compiled programs, by file name
+     * @return the value of the expression
+     * @updates cache
+     * @requires [file is a well-formed XML arithmetic expression file]
+     * @ensures evaluateCached = [the value of the expression in file]
+     */
+    private static int evaluateCached(String file, Map<String, CachedProgram> cache) {
+        File f = new File(file);
+        long modified = f.lastModified();
+        long size = f.length();
+        int result;
+        if (size > MAX_CACHED_FILE_SIZE) {
+            result = evaluateFile(file);
+        } else {
+            CachedProgram cached = null;
+            if (cache.hasKey(file)) {
+                cached = cache.remove(file).value();
+            }
+            if (cached == null || cached.modified != modified || cached.size != size) {
+                cached = new CachedProgram(compileFile(file), modified, size);
+            }
+            cache.add(file, cached);
+            result = execute(cached.program);
+        }
         return result;
     }
 
@@ -71,12 +612,16 @@ public final class XMLTreeIntExpressionEvaluator {
     public static void main(String[] args) {
         SimpleReader in = new SimpleReader1L();
         SimpleWriter out = new SimpleWriter1L();
+        Map<String, CachedProgram> programs = new Map1L<>();
 
         out.print("Enter the name of an expression XML file: ");
         String file = in.nextLine();
         while (!file.equals("")) {
-            XMLTree exp = new XMLTree1(file);
-            out.println(evaluate(exp.child(0)));
+            if (file.endsWith(".xeb")) {
+                out.println(evaluateBinary(file));
+            } else {
+                out.println(evaluateCached(file, programs));
+            }
             out.print("Enter the name of an expression XML file: ");
             file = in.nextLine();
         }
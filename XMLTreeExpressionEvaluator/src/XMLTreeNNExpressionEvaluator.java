@@ -1,3 +1,17 @@
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
 import components.naturalnumber.NaturalNumber;
 import components.naturalnumber.NaturalNumber1L;
 import components.simplereader.SimpleReader;
@@ -6,7 +20,6 @@ import components.simplewriter.SimpleWriter;
 import components.simplewriter.SimpleWriter1L;
 import components.utilities.Reporter;
 import components.xmltree.XMLTree;
-import components.xmltree.XMLTree1;
 
 /**
  * Program to evaluate XMLTree expressions of {@code int}.
@@ -22,6 +35,142 @@ public final class XMLTreeNNExpressionEvaluator {
     private XMLTreeNNExpressionEvaluator() {
     }
 
+    /**
+     * Factory for the streaming readers used by {@code evaluateFile}; DTDs
+     * are not supported, so no external entities are ever fetched.
+     */
+    private static final XMLInputFactory XML_INPUT = XMLInputFactory.newInstance();
+
+    static {
+        XML_INPUT.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    }
+
+    /**
+     * Initial capacity of the value stacks.
+     */
+    private static final int INITIAL_CAPACITY = 32;
+
+    /**
+     * Estimated cost (roughly, digit operations) from which a subtree is
+     * worth evaluating as a separate fork-join task.
+     */
+    private static final long FORK_THRESHOLD = 100_000L;
+
+    /**
+     * Nesting depth of tasks beyond which subtrees are always evaluated
+     * inline, so long chains of expensive operators cannot exhaust the call
+     * stack.
+     */
+    private static final int MAX_FORK_DEPTH = 64;
+
+    /**
+     * Largest ratio between the size of the tree an expression was built
+     * from and the size of its graph for which {@code evaluateParallel} forks
+     * tasks: parallel tasks evaluate shared subexpressions once per use, so
+     * heavily shared expressions are left to {@code evaluateDag}.
+     */
+    private static final int MAX_SHARING = 2;
+
+    /**
+     * Largest file, in bytes, that {@code main} reads into an
+     * {@code XMLTreeExpressionDag} to evaluate with {@code evaluateParallel};
+     * larger files are streamed through {@code evaluateFile}, whose memory use
+     * does not grow with the size of the file.
+     */
+    private static final long MAX_DAG_FILE_SIZE = 64L << 20;
+
+    /**
+     * Fork-join evaluation of the subexpression rooted at a node of an
+     * {@code XMLTreeExpressionDag}. When both operands of an operator are
+     * expensive, the right one is forked and the left one evaluated by the
+     * current worker; when neither is, the whole subexpression is evaluated
+     * inline with {@code evaluateSubtree}.
+     */
+    private static final class EvaluationTask extends RecursiveTask<NaturalNumber> {
+
+        /**
+         * Serialization version, required by {@code RecursiveTask}.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The expression.
+         */
+        private final transient XMLTreeExpressionDag dag;
+
+        /**
+         * Estimated cost of each node of {@code dag}, from
+         * {@code estimateCosts}.
+         */
+        private final long[] costs;
+
+        /**
+         * Id of the node to evaluate.
+         */
+        private final int id;
+
+        /**
+         * Nesting depth of this task.
+         */
+        private final int depth;
+
+        /**
+         * Constructor.
+         *
+         * @param dag
+         *            the expression
+         * @param costs
+         *            estimated cost of each node of dag
+         * @param id
+         *            id of the node to evaluate
+         * @param depth
+         *            nesting depth of this task
+         */
+        EvaluationTask(XMLTreeExpressionDag dag, long[] costs, int id, int depth) {
+            this.dag = dag;
+            this.costs = costs;
+            this.id = id;
+            this.depth = depth;
+        }
+
+        @Override
+        protected NaturalNumber compute() {
+            NaturalNumber result;
+            if (!this.dag.isNumber(this.id) && this.depth < MAX_FORK_DEPTH) {
+                int leftId = this.dag.left(this.id);
+                int rightId = this.dag.right(this.id);
+                boolean leftExpensive = this.costs[leftId] >= FORK_THRESHOLD;
+                boolean rightExpensive = this.costs[rightId] >= FORK_THRESHOLD;
+                if (leftExpensive || rightExpensive) {
+                    EvaluationTask left = new EvaluationTask(this.dag, this.costs,
+                            leftId, this.depth + 1);
+                    EvaluationTask right = new EvaluationTask(this.dag, this.costs,
+                            rightId, this.depth + 1);
+                    NaturalNumber rightValue;
+                    if (leftExpensive && rightExpensive) {
+                        right.fork();
+                        result = left.compute();
+                        rightValue = right.join();
+                    } else {
+                        /*
+                         * Only one side is expensive; descend into both in
+                         * order, looking for parallelism further down
+                         */
+                        result = left.compute();
+                        rightValue = right.compute();
+                    }
+                    combine(this.dag.label(this.id), result, rightValue);
+                } else {
+                    result = evaluateSubtree(this.dag, this.id);
+                }
+            } else {
+                result = evaluateSubtree(this.dag, this.id);
+            }
+            return result;
+        }
+
+    }
+
     /**
      * Evaluate the given expression.
      *
@@ -33,50 +182,421 @@ public final class XMLTreeNNExpressionEvaluator {
      *
      * @ensures evaluate = [the value of the expression]
      */
-    private static NaturalNumber evaluate(XMLTree exp) {
+    public static NaturalNumber evaluate(XMLTree exp) {
         assert exp != null : "Violation of: exp is not null";
 
-        NaturalNumber result = new NaturalNumber1L();
-
         /*
-         * Base Case: The current node is a number
+         * Walk the tree in post-order with an explicit stack, so that deep
+         * trees cannot overflow the call stack; each operator combines the
+         * values of its two children, which are on top of the value stack
          */
-        if (exp.label().equals("number")) {
-            String value = exp.attributeValue("value");
-            Reporter.assertElseFatalError(value != null,
-                    "Missing value attribute in <number> node.");
-            result.setFromString(value);
+        NaturalNumber[] values = new NaturalNumber[INITIAL_CAPACITY];
+        int count = 0;
+        XMLTreePostOrder nodes = new XMLTreePostOrder(exp);
+        while (nodes.hasNext()) {
+            XMLTree node = nodes.next();
+            String label = node.label();
+            if (label.equals("number")) {
+                String value = node.attributeValue("value");
+                Reporter.assertElseFatalError(value != null,
+                        "Missing value attribute in <number> node.");
+                if (count == values.length) {
+                    values = Arrays.copyOf(values, 2 * count);
+                }
+                values[count] = new NaturalNumber1L(value);
+                count++;
+            } else {
+                count--;
+                combine(label, values[count - 1], values[count]);
+                values[count] = null;
+            }
+        }
+        NaturalNumber result = values[0];
+
+        return result;
+    }
+
+    /**
+     * Evaluates an expression given as an {@code XMLTreeExpressionDag},
+     * computing each distinct subexpression only once. A value is released
+     * after its last use, and updated in place by that use when possible.
+     *
+     * @param dag
+     *            the expression, with identical subexpressions shared
+     * @return the value of the expression
+     * @ensures evaluateDag = [the value of the expression]
+     */
+    public static NaturalNumber evaluateDag(XMLTreeExpressionDag dag) {
+        assert dag != null : "Violation of: dag is not null";
+
+        int root = dag.root();
+        int[] uses = dag.useCounts();
+        NaturalNumber[] values = new NaturalNumber[root + 1];
+        for (int id = 0; id <= root; id++) {
+            if (uses[id] > 0) {
+                if (dag.isNumber(id)) {
+                    String value = dag.value(id);
+                    Reporter.assertElseFatalError(value != null,
+                            "Missing value attribute in <number> node.");
+                    values[id] = new NaturalNumber1L(value);
+                } else {
+                    int left = dag.left(id);
+                    int right = dag.right(id);
+                    NaturalNumber rightValue = values[right];
+                    uses[right]--;
+                    uses[left]--;
+                    NaturalNumber leftValue;
+                    if (uses[left] == 0 && left != right) {
+                        leftValue = values[left];
+                    } else {
+                        leftValue = new NaturalNumber1L(values[left]);
+                    }
+                    if (uses[left] == 0) {
+                        values[left] = null;
+                    }
+                    if (uses[right] == 0) {
+                        values[right] = null;
+                    }
+                    combine(dag.label(id), leftValue, rightValue);
+                    values[id] = leftValue;
+                }
+            }
+        }
+        return values[root];
+    }
+
+    /**
+     * Applies the operator labeled {@code operator} to {@code left} and
+     * {@code right}, leaving the result in {@code left}. Reports a fatal error
+     * for an unknown operator, a negative difference, or division by zero.
+     *
+     * @param operator
+     *            the label of the operator node
+     * @param left
+     *            the left operand; replaced by the result
+     * @param right
+     *            the right operand
+     * @updates left
+     * @ensures left = [#left operator right]
+     */
+    private static void combine(String operator, NaturalNumber left,
+            NaturalNumber right) {
+        if (operator.equals("plus")) {
+            left.add(right);
+        } else if (operator.equals("minus")) {
+            Reporter.assertElseFatalError(left.compareTo(right) >= 0,
+                    "Cannot subtract: Left operand is smaller than right operand.");
+            left.subtract(right);
+        } else if (operator.equals("times")) {
+            left.multiply(right);
+        } else if (operator.equals("divide")) {
+            Reporter.assertElseFatalError(!right.isZero(),
+                    "Division by zero is not allowed.");
+            left.divide(right);
         } else {
-            /*
-             * Recursive Case: Evaluate left and right children
-             */
-            NaturalNumber left = evaluate(exp.child(0));
-            NaturalNumber right = evaluate(exp.child(1));
-
-            if (exp.label().equals("plus")) {
-                result.copyFrom(left);
-                result.add(right);
-            } else if (exp.label().equals("minus")) {
-                Reporter.assertElseFatalError(left.compareTo(right) >= 0,
-                        "Cannot subtract: Left operand is smaller than right operand.");
-                result.copyFrom(left);
-                result.subtract(right);
-            } else if (exp.label().equals("times")) {
-                result.copyFrom(left);
-                result.multiply(right);
-            } else if (exp.label().equals("divide")) {
-                Reporter.assertElseFatalError(!right.isZero(),
-                        "Division by zero is not allowed.");
-                result.copyFrom(left);
-                result.divide(right);
+            Reporter.fatalErrorToConsole("Unknown operator: " + operator);
+        }
+    }
+
+    /**
+     * Evaluates the expression in the given XML file by streaming through it,
+     * without building an {@code XMLTree}: each {@code number} pushes its
+     * value, and each operator's closing tag replaces the top two values with
+     * its result. Memory use is proportional to the depth of the expression
+     * (and the size of the numbers), not the size of the file.
+     *
+     * @param file
+     *            the name of the expression XML file
+     * @return the value of the expression
+     * @requires [file is a well-formed XML arithmetic expression file]
+     * @ensures evaluateFile = [the value of the expression in file]
+     */
+    public static NaturalNumber evaluateFile(String file) {
+        assert file != null : "Violation of: file is not null";
+
+        NaturalNumber[] values = new NaturalNumber[INITIAL_CAPACITY];
+        int count = 0;
+        try (InputStream input = new BufferedInputStream(new FileInputStream(file))) {
+            XMLStreamReader reader = XML_INPUT.createXMLStreamReader(input);
+            try {
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT
+                            && reader.getLocalName().equals("number")) {
+                        String value = reader.getAttributeValue(null, "value");
+                        Reporter.assertElseFatalError(value != null,
+                                "Missing value attribute in <number> node.");
+                        if (count == values.length) {
+                            values = Arrays.copyOf(values, 2 * count);
+                        }
+                        values[count] = new NaturalNumber1L(value);
+                        count++;
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        String label = reader.getLocalName();
+                        if (!label.equals("number") && !label.equals("expression")) {
+                            count--;
+                            combine(label, values[count - 1], values[count]);
+                            values[count] = null;
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | XMLStreamException e) {
+            Reporter.fatalErrorToConsole(
+                    "Error reading expression file " + file + ": " + e.getMessage());
+        }
+        return values[0];
+    }
+
+    /**
+     * Returns {@code a + b}, or {@code Long.MAX_VALUE} if that overflows.
+     *
+     * @param a
+     *            one term
+     * @param b
+     *            the other term
+     * @return min(a + b, Long.MAX_VALUE)
+     * @requires a >= 0 and b >= 0
+     * @ensures saturatedSum = min(a + b, Long.MAX_VALUE)
+     */
+    private static long saturatedSum(long a, long b) {
+        long sum = a + b;
+        if (sum < 0) {
+            sum = Long.MAX_VALUE;
+        }
+        return sum;
+    }
+
+    /**
+     * Returns {@code a * b}, or {@code Long.MAX_VALUE} if that overflows.
+     *
+     * @param a
+     *            one factor
+     * @param b
+     *            the other factor
+     * @return min(a * b, Long.MAX_VALUE)
+     * @requires a >= 0 and b >= 0
+     * @ensures saturatedProduct = min(a * b, Long.MAX_VALUE)
+     */
+    private static long saturatedProduct(long a, long b) {
+        long product = a * b;
+        if (Math.multiplyHigh(a, b) != 0 || product < 0) {
+            product = Long.MAX_VALUE;
+        }
+        return product;
+    }
+
+    /**
+     * Estimates, for every node of {@code dag}, the cost of evaluating the
+     * subexpression rooted there as a tree, that is, with a shared
+     * subexpression counted once per use. The number of digits of each value
+     * is estimated from those of the operands; a sum or difference costs
+     * about as many digit operations as its longer operand has digits, and a
+     * product or quotient about the product of the operands' digit counts.
+     * Estimates saturate at {@code Long.MAX_VALUE}.
+     *
+     * @param dag
+     *            the expression, with identical subexpressions shared
+     * @return the estimated cost of each node, by id
+     * @ensures <pre>
+     * |estimateCosts| = dag.root() + 1  and
+     * [estimateCosts[id] is the estimated cost of evaluating node id]
+     * </pre>
+     */
+    private static long[] estimateCosts(XMLTreeExpressionDag dag) {
+        int root = dag.root();
+        long[] digits = new long[root + 1];
+        long[] costs = new long[root + 1];
+        for (int id = 0; id <= root; id++) {
+            if (dag.isNumber(id)) {
+                String value = dag.value(id);
+                digits[id] = value == null ? 1 : value.length();
+                costs[id] = digits[id];
             } else {
-                Reporter.fatalErrorToConsole("Unknown operator: " + exp.label());
+                long left = digits[dag.left(id)];
+                long right = digits[dag.right(id)];
+                String label = dag.label(id);
+                long cost;
+                if (label.equals("times")) {
+                    cost = saturatedProduct(left, right);
+                    digits[id] = saturatedSum(left, right);
+                } else if (label.equals("divide")) {
+                    cost = saturatedProduct(left, right);
+                    digits[id] = Math.max(1, left - right + 1);
+                } else {
+                    cost = Math.max(left, right);
+                    digits[id] = saturatedSum(Math.max(left, right), 1);
+                }
+                costs[id] = saturatedSum(cost,
+                        saturatedSum(costs[dag.left(id)], costs[dag.right(id)]));
             }
         }
+        return costs;
+    }
 
+    /**
+     * Evaluates the subexpression rooted at node {@code id} of {@code dag}
+     * as a tree, walking it in post-order with explicit stacks so that deep
+     * expressions cannot overflow the call stack.
+     *
+     * @param dag
+     *            the expression, with identical subexpressions shared
+     * @param id
+     *            the id of the node to evaluate
+     * @return the value of the subexpression
+     * @requires 0 <= id <= dag.root()
+     * @ensures evaluateSubtree = [the value of node id]
+     */
+    private static NaturalNumber evaluateSubtree(XMLTreeExpressionDag dag, int id) {
+        /*
+         * An operator is pushed again, complemented, above its operands, and
+         * combines their values when it is popped the second time
+         */
+        int[] nodes = new int[INITIAL_CAPACITY];
+        int top = 0;
+        NaturalNumber[] values = new NaturalNumber[INITIAL_CAPACITY];
+        int count = 0;
+        nodes[top] = id;
+        top++;
+        while (top > 0) {
+            top--;
+            int node = nodes[top];
+            if (node < 0) {
+                count--;
+                combine(dag.label(~node), values[count - 1], values[count]);
+                values[count] = null;
+            } else if (dag.isNumber(node)) {
+                String value = dag.value(node);
+                Reporter.assertElseFatalError(value != null,
+                        "Missing value attribute in <number> node.");
+                if (count == values.length) {
+                    values = Arrays.copyOf(values, 2 * count);
+                }
+                values[count] = new NaturalNumber1L(value);
+                count++;
+            } else {
+                if (top + 2 >= nodes.length) {
+                    nodes = Arrays.copyOf(nodes, 2 * nodes.length);
+                }
+                nodes[top] = ~node;
+                nodes[top + 1] = dag.right(node);
+                nodes[top + 2] = dag.left(node);
+                top += 3;
+            }
+        }
+        return values[0];
+    }
+
+    /**
+     * Reports whether an expression is worth evaluating with fork-join
+     * parallelism rather than with {@code evaluateDag}: its estimated cost
+     * must be enough for at least two tasks, and sharing must not make the
+     * graph much smaller than the tree.
+     *
+     * @param dag
+     *            the expression, with identical subexpressions shared
+     * @param costs
+     *            the estimated cost of each node of dag, from
+     *            {@code estimateCosts}
+     * @return true iff the expression should be evaluated in parallel
+     */
+    private static boolean worthParallel(XMLTreeExpressionDag dag, long[] costs) {
+        return costs[dag.root()] >= 2 * FORK_THRESHOLD
+                && dag.treeSize() <= (long) MAX_SHARING * dag.size();
+    }
+
+    /**
+     * Evaluates the given expression with fork-join parallelism: the
+     * subexpressions whose estimated cost is above a threshold are evaluated
+     * in parallel on the common pool, and cheaper ones inline. An expression
+     * too cheap to split, or with much sharing, is evaluated with
+     * {@code evaluateDag} instead. Errors are reported as by
+     * {@code evaluateDag}, although with several errors in an expression,
+     * which is reported first may differ.
+     *
+     * @param dag
+     *            the expression, with identical subexpressions shared
+     * @return the value of the expression
+     * @ensures evaluateParallel = [the value of the expression]
+     */
+    public static NaturalNumber evaluateParallel(XMLTreeExpressionDag dag) {
+        assert dag != null : "Violation of: dag is not null";
+
+        long[] costs = estimateCosts(dag);
+        NaturalNumber result;
+        if (worthParallel(dag, costs)) {
+            result = ForkJoinPool.commonPool()
+                    .invoke(new EvaluationTask(dag, costs, dag.root(), 0));
+        } else {
+            result = evaluateDag(dag);
+        }
         return result;
     }
 
+    /**
+     * Reads the expression in the given XML file into an
+     * {@code XMLTreeExpressionDag}, streaming through it.
+     *
+     * @param file
+     *            the name of the expression XML file
+     * @return the expression
+     * @requires [file is a well-formed XML arithmetic expression file]
+     * @ensures readDag = [the expression in file]
+     */
+    private static XMLTreeExpressionDag readDag(String file) {
+        XMLTreeExpressionDag dag = null;
+        try (InputStream input = new BufferedInputStream(new FileInputStream(file))) {
+            dag = new XMLTreeExpressionDag(input);
+        } catch (IOException | XMLStreamException e) {
+            Reporter.fatalErrorToConsole(
+                    "Error reading expression file " + file + ": " + e.getMessage());
+        }
+        return dag;
+    }
+
+    /**
+     * Evaluates the expression in the given binary expression file (see
+     * {@code XMLTreeExpressionBinary}), reading it through a memory mapping.
+     *
+     * @param file
+     *            the name of the binary expression file
+     * @return the value of the expression
+     * @requires [file is a binary expression file]
+     * @ensures evaluateBinary = [the value of the expression in file]
+     */
+    public static NaturalNumber evaluateBinary(String file) {
+        assert file != null : "Violation of: file is not null";
+
+        NaturalNumber[] values = new NaturalNumber[INITIAL_CAPACITY];
+        int count = 0;
+        try (XMLTreeExpressionBinary.Reader reader = new XMLTreeExpressionBinary.Reader(
+                file)) {
+            while (reader.hasNext()) {
+                String label = reader.next();
+                if (label.equals("number")) {
+                    String value = reader.value();
+                    Reporter.assertElseFatalError(!value.startsWith("-"),
+                            "Negative number in NaturalNumber expression: " + value);
+                    if (count == values.length) {
+                        values = Arrays.copyOf(values, 2 * count);
+                    }
+                    values[count] = new NaturalNumber1L(value);
+                    count++;
+                } else {
+                    count--;
+                    combine(label, values[count - 1], values[count]);
+                    values[count] = null;
+                }
+            }
+        } catch (IOException e) {
+            Reporter.fatalErrorToConsole("Error reading binary expression file "
+                    + file + ": " + e.getMessage());
+        }
+        return values[0];
+    }
+
     /**
      * Main method.
      *
@@ -90,8 +610,17 @@ public final class XMLTreeNNExpressionEvaluator {
         out.print("Enter the name of an expression XML file: ");
         String file = in.nextLine();
         while (!file.equals("")) {
-            XMLTree exp = new XMLTree1(file);
-            out.println(evaluate(exp.child(0)));
+            if (file.endsWith(".xeb")) {
+                out.println(evaluateBinary(file));
+            } else if (new File(file).length() <= MAX_DAG_FILE_SIZE) {
+                /*
+                 * Small enough to hold as a graph, so expensive
+                 * subexpressions can be evaluated on all processors
+                 */
+                out.println(evaluateParallel(readDag(file)));
+            } else {
+                out.println(evaluateFile(file));
+            }
             out.print("Enter the name of an expression XML file: ");
             file = in.nextLine();
         }
@@ -0,0 +1,85 @@
+import java.util.Arrays;
+
+import components.xmltree.XMLTree;
+
+/**
+ * Iterator over the nodes of an {@code XMLTree} in post-order (children left
+ * to right, then the node itself), using an explicit stack rather than
+ * recursion so that trees of any depth can be walked.
+ *
+ * @author S. Park
+ *
+ */
+final class XMLTreePostOrder {
+
+    /**
+     * Initial capacity of the stack.
+     */
+    private static final int INITIAL_CAPACITY = 32;
+
+    /**
+     * Nodes on the path from the root to the node being visited.
+     */
+    private XMLTree[] nodes = new XMLTree[INITIAL_CAPACITY];
+
+    /**
+     * For each node on the path, the index of its next child to visit.
+     */
+    private int[] nextChild = new int[INITIAL_CAPACITY];
+
+    /**
+     * Number of nodes on the path.
+     */
+    private int depth;
+
+    /**
+     * Constructor.
+     *
+     * @param root
+     *            the root of the tree to walk
+     */
+    XMLTreePostOrder(XMLTree root) {
+        assert root != null : "Violation of: root is not null";
+
+        this.nodes[0] = root;
+        this.depth = 1;
+    }
+
+    /**
+     * Reports whether there are nodes left to visit.
+     *
+     * @return true iff there are nodes left to visit
+     */
+    boolean hasNext() {
+        return this.depth > 0;
+    }
+
+    /**
+     * Returns the next node in post-order.
+     *
+     * @return the next node
+     * @requires hasNext()
+     */
+    XMLTree next() {
+        assert this.depth > 0 : "Violation of: hasNext()";
+
+        XMLTree node = this.nodes[this.depth - 1];
+        while (node.isTag()
+                && this.nextChild[this.depth - 1] < node.numberOfChildren()) {
+            XMLTree child = node.child(this.nextChild[this.depth - 1]);
+            this.nextChild[this.depth - 1]++;
+            if (this.depth == this.nodes.length) {
+                this.nodes = Arrays.copyOf(this.nodes, 2 * this.depth);
+                this.nextChild = Arrays.copyOf(this.nextChild, 2 * this.depth);
+            }
+            this.nodes[this.depth] = child;
+            this.nextChild[this.depth] = 0;
+            this.depth++;
+            node = child;
+        }
+        this.depth--;
+        this.nodes[this.depth] = null;
+        return node;
+    }
+
+}